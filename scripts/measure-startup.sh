@@ -0,0 +1,81 @@
+#!/usr/bin/env bash
+# Замер времени до первого ответа HTTP: обычный запуск fat jar против fast-start (AOT + CDS + профиль fast-start).
+#
+#   ./mvnw -Pfast-start package -DskipTests
+#   RUNS=5 ./scripts/measure-startup.sh [доп. аргументы приложения]
+#
+# Переменные окружения приложения (POSTGRES_*, JWT_ENCRYPTION_SECRET, ...) передаются как есть.
+# Для fast-start схема БД должна быть уже мигрирована: Flyway в этой сборке отключен (его мигрирует обычный запуск).
+# Любой HTTP-ответ, включая 401, считается готовностью: контекст поднят и запросы обслуживаются.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS="${RUNS:-5}"
+PORT="${PORT:-8082}"
+TIMEOUT_S="${TIMEOUT_S:-120}"
+JAR_NAME="fitcrm-security-service-0.0.1-SNAPSHOT.jar"
+FAST_START_DIR="target/fast-start"
+
+if [[ ! -f "target/$JAR_NAME" || ! -f "$FAST_START_DIR/application.jsa" ]]; then
+  echo "Build first: ./mvnw -Pfast-start package -DskipTests" >&2
+  exit 1
+fi
+
+# Печатает миллисекунды от запуска процесса до первого HTTP-ответа.
+measure() {
+  local workdir="$1"
+  shift
+  local start pid code elapsed
+  start=$(date +%s%N)
+  (cd "$workdir" && exec "$@" --server.port="$PORT" >/dev/null 2>&1) &
+  pid=$!
+  while true; do
+    code=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/.well-known/jwks.json" || true)
+    if [[ "$code" != "000" ]]; then
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "application exited before serving a request" >&2
+      return 1
+    fi
+    elapsed=$(( ($(date +%s%N) - start) / 1000000000 ))
+    if (( elapsed > TIMEOUT_S )); then
+      kill "$pid"
+      echo "no response within ${TIMEOUT_S}s" >&2
+      return 1
+    fi
+    sleep 0.02
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed"
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+run_series() {
+  local label="$1"
+  shift
+  local results=()
+  for ((i = 1; i <= RUNS; i++)); do
+    results+=("$(measure "$@")")
+    echo "  $label run $i: ${results[-1]} ms" >&2
+  done
+  printf '%s\n' "${results[@]}" | median
+}
+
+echo "Time to first response, median of $RUNS runs" >&2
+baseline=$(run_series baseline target java -jar "$JAR_NAME" "$@")
+fast=$(run_series fast-start "$FAST_START_DIR" java \
+  -XX:SharedArchiveFile=application.jsa \
+  -Dspring.aot.enabled=true \
+  -Dspring.profiles.active=fast-start \
+  -jar "$JAR_NAME" "$@")
+
+echo "baseline:   ${baseline} ms"
+echo "fast-start: ${fast} ms"
+awk -v b="$baseline" -v f="$fast" 'BEGIN { printf "speedup:    %.2fx\n", b / f }'
@@ -0,0 +1,66 @@
+package com.fitcrm.security.benchmark;
+
+import com.fitcrm.security.utils.JwtKeyUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шифрование ключей подписи и хеширование паролей.
+ * Запуск: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="CryptoBenchmark -prof gc"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoBenchmark {
+
+    private static final String SIGNING_KEY = "Qk9PVFNUUkFQLUtFWS1GT1ItQkVOQ0hNQVJLSU5HLU9OTFktNjQtQllURVMtTE9OR19fX19fX19fX19fX18";
+    private static final String KID = "benchmark-kid";
+    private static final String PASSWORD = "correct horse battery staple";
+    // стоимость по умолчанию BCryptPasswordEncoder; хеши хранит и проверяет user-service
+    private static final int BCRYPT_STRENGTH = 10;
+
+    private JwtKeyUtil jwtKeyUtil;
+    private PasswordEncoder passwordEncoder;
+    private String encryptedKey;
+    private String passwordHash;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        jwtKeyUtil = new JwtKeyUtil();
+        ReflectionTestUtils.setField(jwtKeyUtil, "secretKey", "benchmark-secret-1234567890-long-enough");
+        jwtKeyUtil.init();
+        encryptedKey = jwtKeyUtil.encrypt(SIGNING_KEY, KID);
+
+        passwordEncoder = new BCryptPasswordEncoder(BCRYPT_STRENGTH);
+        passwordHash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encryptSigningKey() throws Exception {
+        return jwtKeyUtil.encrypt(SIGNING_KEY, KID);
+    }
+
+    @Benchmark
+    public String decryptSigningKey() throws Exception {
+        return jwtKeyUtil.decrypt(encryptedKey, KID);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String bcryptEncode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean bcryptMatches() {
+        return passwordEncoder.matches(PASSWORD, passwordHash);
+    }
+}
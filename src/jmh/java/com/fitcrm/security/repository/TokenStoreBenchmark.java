@@ -0,0 +1,135 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.FitcrmSecurityServiceApplication;
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore.StoredToken;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение реализаций TokenStore: jpa (встроенный Postgres с миграциями Flyway), memory и redis
+ * (встроенный redis-server). Оба сервера локальные, поэтому сетевая задержка в цифрах не учтена.
+ * Запуск: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="TokenStoreBenchmark"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenStoreBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int REDIS_PORT = 16379;
+
+    @Param({"jpa", "memory", "redis"})
+    private String store;
+
+    private TokenStore tokenStore;
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private String[] accessHashes;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokenStore = switch (store) {
+            case "jpa" -> startPostgres();
+            case "memory" -> new InMemoryTokenStore();
+            case "redis" -> startRedis();
+            default -> throw new IllegalArgumentException(store);
+        };
+        accessHashes = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            savePair(i);
+        }
+        batch = List.of(accessHashes).subList(0, 50);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+            postgres.close();
+        }
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+            redisServer.stop();
+        }
+    }
+
+    @Benchmark
+    public Optional<StoredToken> findActive() {
+        String hash = accessHashes[ThreadLocalRandom.current().nextInt(USERS)];
+        return tokenStore.findActive(hash, TokenType.ACCESS);
+    }
+
+    @Benchmark
+    public List<StoredToken> findAllActiveBatchOf50() {
+        return tokenStore.findAllActive(batch, TokenType.ACCESS);
+    }
+
+    @Benchmark
+    public void savePair() {
+        savePair(ThreadLocalRandom.current().nextInt(USERS));
+    }
+
+    private void savePair(int user) {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        String access = UUID.randomUUID().toString();
+        accessHashes[user] = access;
+        tokenStore.savePair(
+                new StoredToken((long) user, access, TokenType.ACCESS, access, access, exp),
+                new StoredToken((long) user, access, TokenType.REFRESH, UUID.randomUUID().toString(), access, exp));
+    }
+
+    // контекст поднимается на Postgres: на нем jpa-хранилище работает в эксплуатации
+    private TokenStore startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(FitcrmSecurityServiceApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "logging.level.root=WARN",
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.driver-class-name=org.postgresql.Driver",
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=",
+                        "spring.flyway.enabled=true",
+                        "spring.jpa.hibernate.ddl-auto=validate",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect")
+                .run();
+        return context.getBean(TokenStore.class);
+    }
+
+    private TokenStore startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", REDIS_PORT));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        RedisTokenStore redisStore = new RedisTokenStore(new StringRedisTemplate(connectionFactory));
+        ReflectionTestUtils.setField(redisStore, "keyPrefix", "bench:");
+        return redisStore;
+    }
+}
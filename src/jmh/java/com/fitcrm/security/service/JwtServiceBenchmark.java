@@ -0,0 +1,135 @@
+package com.fitcrm.security.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.fitcrm.security.benchmark.ApplicationState;
+import com.fitcrm.security.model.entity.UserSession;
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.UserSessionRepository;
+import com.fitcrm.security.service.JwtService.IssuedToken;
+import com.fitcrm.security.utils.TokenHashUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути выдачи и проверки токенов.
+ * Аллокации выдачи сравниваются по gc.alloc.rate.norm у generateAccessToken
+ * и generateAccessTokenJwtCreator (прежний путь через JWTCreator).
+ * Запуск: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="JwtServiceBenchmark -prof gc"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private static final Long USER_ID = 42L;
+    private static final String SESSION_ID = "00000000-0000-0000-0000-000000000042";
+    private static final long ACCESS_EXPIRATION_MS = 900_000;
+
+    private JwtService jwtService;
+    private JwtSigningEngine signingEngine;
+    private UserSessionRepository sessionRepo;
+    private Algorithm jwtCreatorAlgorithm;
+
+    private String accessToken;
+    private String accessTokenHash;
+
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        jwtService = application.getBean(JwtService.class);
+        signingEngine = application.getBean(JwtSigningEngine.class);
+        sessionRepo = application.getBean(UserSessionRepository.class);
+        TokenRevocationIndex revocationIndex = application.getBean(TokenRevocationIndex.class);
+
+        IssuedToken access = jwtService.generateAccessToken(USER_ID, SESSION_ID, "bench@fitcrm.test", "CLIENT");
+        IssuedToken refresh = jwtService.generateRefreshToken(USER_ID, SESSION_ID);
+        accessToken = access.value();
+        accessTokenHash = TokenHashUtil.sha256Hex(accessToken);
+        sessionRepo.save(UserSession.builder()
+                .id(SESSION_ID)
+                .userId(USER_ID)
+                .accessHash(accessTokenHash)
+                .accessJti(access.jti())
+                .accessExpiresAt(LocalDateTime.ofInstant(access.expiresAt(), ZoneId.systemDefault()))
+                .refreshHash(TokenHashUtil.sha256Hex(refresh.value()))
+                .refreshJti(refresh.jti())
+                .refreshExpiresAt(LocalDateTime.ofInstant(refresh.expiresAt(), ZoneId.systemDefault()))
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .revoked(false)
+                .build());
+        revocationIndex.register(USER_ID, SESSION_ID, TokenType.ACCESS, access.jti(), access.expiresAt());
+
+        jwtCreatorAlgorithm = Algorithm.HMAC512("benchmark-secret-benchmark-secret-benchmark-secret-benchmark-sec"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public IssuedToken generateAccessToken() {
+        return jwtService.generateAccessToken(USER_ID, SESSION_ID, "bench@fitcrm.test", "CLIENT");
+    }
+
+    /**
+     * Прежняя выдача access-токена: LocalDateTime через ZoneId в Date, UUID.randomUUID()
+     * на SecureRandom и JWTCreator, сериализующий заголовок и claims через Jackson на каждый токен.
+     * Тот же алгоритм HS512, но ключ не из кольца.
+     */
+    @Benchmark
+    public String generateAccessTokenJwtCreator() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime exp = now.plus(ACCESS_EXPIRATION_MS, ChronoUnit.MILLIS);
+        return JWT.create()
+                .withKeyId("benchmark")
+                .withJWTId(UUID.randomUUID().toString())
+                .withSubject("bench@fitcrm.test")
+                .withIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
+                .withExpiresAt(Date.from(exp.atZone(ZoneId.systemDefault()).toInstant()))
+                .withClaim("user_id", USER_ID)
+                .withClaim("sid", SESSION_ID)
+                .withClaim("role", "CLIENT")
+                .withClaim("type", TokenType.ACCESS.name())
+                .sign(jwtCreatorAlgorithm);
+    }
+
+    @Benchmark
+    public IssuedToken generateRefreshToken() {
+        return jwtService.generateRefreshToken(USER_ID, SESSION_ID);
+    }
+
+    /**
+     * Только подпись и claims, без проверки отзыва.
+     * Столько же раньше стоило чтение exp из только что подписанного токена при ротации.
+     */
+    @Benchmark
+    public DecodedJWT verifySignature() {
+        return signingEngine.verify(accessToken);
+    }
+
+    /**
+     * Полная проверка: подпись, тип и отзыв по локальному индексу.
+     */
+    @Benchmark
+    public DecodedJWT verifyToken() {
+        return jwtService.verifyToken(accessToken, TokenType.ACCESS);
+    }
+
+    /**
+     * Обращение к H2, которое verifyToken делает для неизвестных узлу токенов.
+     */
+    @Benchmark
+    public Optional<UserSession> verifyTokenDbLookup() {
+        return sessionRepo.findByAccessHashAndRevokedFalse(TokenHashUtil.sha256Hex(accessToken));
+    }
+}
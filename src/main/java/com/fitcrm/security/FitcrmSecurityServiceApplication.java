@@ -3,9 +3,11 @@ package com.fitcrm.security;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableFeignClients
+@EnableScheduling
 public class FitcrmSecurityServiceApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(FitcrmSecurityServiceApplication.class, args);
@@ -0,0 +1,92 @@
+package com.fitcrm.security.clients;
+
+import com.fitcrm.security.model.dto.LoginRequestDto;
+import com.fitcrm.security.model.dto.UserDto;
+import com.fitcrm.security.service.AuthMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Вызовы user-service с ограничением параллелизма (bulkhead) и circuit breaker.
+ * При недоступности user-service getUserById отдает последнее известное
+ * состояние активного пользователя.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserServiceGateway {
+
+    private static final String USER_SERVICE = "user-service";
+
+    private final UserServiceClient userClient;
+    private final AuthMetrics authMetrics;
+
+    private Cache<Long, UserDto> lastKnownUsers;
+
+    @Value("${user-service.fallback.ttl-ms}")
+    private long fallbackTtlMs;
+
+    @Value("${user-service.fallback.max-size}")
+    private long fallbackMaxSize;
+
+    @PostConstruct
+    public void init() {
+        this.lastKnownUsers = Caffeine.newBuilder()
+                .maximumSize(fallbackMaxSize)
+                .expireAfterWrite(Duration.ofMillis(fallbackTtlMs))
+                .build();
+    }
+
+    @Bulkhead(name = USER_SERVICE)
+    @CircuitBreaker(name = USER_SERVICE)
+    public UserDto verifyCredentials(LoginRequestDto request) {
+        UserDto user = authMetrics.record("auth.user_service", Tags.of("call", "verify_credentials"),
+                () -> userClient.verifyCredentials(request));
+        remember(user);
+        return user;
+    }
+
+    @Bulkhead(name = USER_SERVICE)
+    @CircuitBreaker(name = USER_SERVICE, fallbackMethod = "lastKnownUser")
+    public UserDto getUserById(Long id) {
+        UserDto user = authMetrics.record("auth.user_service", Tags.of("call", "get_user_by_id"),
+                () -> userClient.getUserById(id));
+        remember(user);
+        return user;
+    }
+
+    public void forget(Long id) {
+        lastKnownUsers.invalidate(id);
+    }
+
+    private UserDto lastKnownUser(Long id, Exception cause) throws Exception {
+        // 4xx — ответ user-service по существу (например, пользователь удален), а не сбой
+        if (cause instanceof FeignException.FeignClientException) {
+            throw cause;
+        }
+        UserDto user = lastKnownUsers.getIfPresent(id);
+        if (user == null || !user.isActive()) {
+            throw cause;
+        }
+        log.warn("user-service unavailable ({}), using last known state of user {}",
+                cause.getClass().getSimpleName(), id);
+        return user;
+    }
+
+    private void remember(UserDto user) {
+        if (user != null && user.getId() != null) {
+            lastKnownUsers.put(user.getId(), user);
+        }
+    }
+}
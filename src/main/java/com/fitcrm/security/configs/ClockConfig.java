@@ -0,0 +1,19 @@
+package com.fitcrm.security.configs;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Часы для выдачи токенов: время берется как Instant, без часового пояса.
+ * Тесты и бенчмарки могут подменить бин фиксированными часами.
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
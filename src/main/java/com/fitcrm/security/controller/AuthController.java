@@ -1,23 +1,45 @@
 package com.fitcrm.security.controller;
 
 import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.model.dto.IntrospectRequestDto;
+import com.fitcrm.security.model.dto.IntrospectResponseDto;
 import com.fitcrm.security.model.dto.LoginRequestDto;
 import com.fitcrm.security.model.dto.RefreshTokenRequestDto;
+import com.fitcrm.security.model.dto.RevokeTokensRequestDto;
+import com.fitcrm.security.model.dto.RevokeTokensResponseDto;
+import com.fitcrm.security.model.dto.SessionPageDto;
 import com.fitcrm.security.service.AuthenticationService;
+import com.fitcrm.security.service.LoginRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final AuthenticationService authService;
+    private final LoginRateLimiter loginRateLimiter;
 
     @PostMapping("/login")
-    public ResponseEntity<AuthTokensDto> login(@Valid @RequestBody LoginRequestDto request) {
+    public ResponseEntity<AuthTokensDto> login(@Valid @RequestBody LoginRequestDto request,
+                                               HttpServletRequest httpRequest) {
+        long retryAfterNanos = loginRateLimiter.tryAcquire(httpRequest.getRemoteAddr(), request.getEmail());
+        if (retryAfterNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                    .build();
+        }
         return ResponseEntity.ok(authService.login(request));
     }
 
@@ -31,4 +53,32 @@ public class AuthController {
         authService.logout(userId);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    @PostMapping("/revoke")
+    public ResponseEntity<RevokeTokensResponseDto> revoke(@Valid @RequestBody RevokeTokensRequestDto request) {
+        int revoked = authService.revokeUsers(request.getUserIds());
+        return ResponseEntity.ok(new RevokeTokensResponseDto(revoked));
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<SessionPageDto> sessions(@RequestParam Long userId,
+                                                   @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(authService.listSessions(userId, page, size));
+    }
+
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> revokeSession(@PathVariable String sessionId, @RequestParam Long userId) {
+        return authService.revokeSession(userId, sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/introspect")
+    public ResponseEntity<IntrospectResponseDto> introspect(@Valid @RequestBody IntrospectRequestDto request) {
+        IntrospectResponseDto response = authService.introspect(request);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(response.getMaxAgeSeconds())).cachePrivate())
+                .body(response);
+    }
+}
@@ -0,0 +1,26 @@
+package com.fitcrm.security.controller;
+
+import com.fitcrm.security.service.UserCacheService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Служебные вызовы от user-service.
+ */
+@RestController
+@RequestMapping("/internal/users")
+@RequiredArgsConstructor
+public class InternalUserController {
+
+    private final UserCacheService userCache;
+
+    /**
+     * Сбрасывает закешированные данные пользователя, например после деактивации или смены роли.
+     */
+    @PostMapping("/{id}/invalidate")
+    public ResponseEntity<Void> invalidate(@PathVariable("id") Long id) {
+        userCache.evict(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.fitcrm.security.exception;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.fitcrm.security.model.enums.FailureReason;
+import lombok.Getter;
+
+/**
+ * Токен прошел проверку подписи, но отклонен по состоянию (тип, отзыв, пользователь).
+ */
+@Getter
+public class TokenRejectedException extends JWTVerificationException {
+
+    private final FailureReason reason;
+
+    public TokenRejectedException(FailureReason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+}
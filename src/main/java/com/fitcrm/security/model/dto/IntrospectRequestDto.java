@@ -0,0 +1,23 @@
+package com.fitcrm.security.model.dto;
+
+import com.fitcrm.security.model.enums.TokenType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntrospectRequestDto {
+    @NotEmpty
+    @Size(max = 500)
+    private List<@NotBlank String> tokens;
+
+    @NotNull
+    private TokenType tokenType = TokenType.ACCESS;
+}
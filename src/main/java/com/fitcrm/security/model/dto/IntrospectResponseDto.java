@@ -0,0 +1,17 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntrospectResponseDto {
+    private List<TokenIntrospectionDto> results;
+    /**
+     * Smallest maxAgeSeconds among results, also sent as Cache-Control max-age.
+     */
+    private long maxAgeSeconds;
+}
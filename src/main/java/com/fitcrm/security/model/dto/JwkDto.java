@@ -0,0 +1,24 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Public EC key in JWK format (RFC 7517).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JwkDto {
+
+    private String kty;
+    private String crv;
+    private String x;
+    private String y;
+    private String kid;
+    private String use;
+    private String alg;
+}
@@ -0,0 +1,17 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class JwksDto {
+
+    private List<JwkDto> keys;
+}
@@ -0,0 +1,19 @@
+package com.fitcrm.security.model.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class RevokeTokensRequestDto {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@NotNull Long> userIds;
+}
@@ -0,0 +1,15 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class RevokeTokensResponseDto {
+    /**
+     * Number of revoked sessions (users in USER_EPOCH mode).
+     */
+    private int revokedTokens;
+}
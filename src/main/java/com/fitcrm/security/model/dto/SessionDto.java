@@ -0,0 +1,28 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * One logged-in device of a user.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionDto {
+    /**
+     * Same value as the sid claim of the session's tokens.
+     */
+    private String sessionId;
+    private Instant createdAt;
+    /**
+     * Login or the last refresh-token rotation.
+     */
+    private Instant lastRefreshedAt;
+    /**
+     * Expiry of the session's current refresh token.
+     */
+    private Instant expiresAt;
+}
@@ -0,0 +1,19 @@
+package com.fitcrm.security.model.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Page of a user's active sessions, most recently refreshed first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionPageDto {
+    private List<SessionDto> sessions;
+    private int page;
+    private int size;
+    private long totalElements;
+}
@@ -0,0 +1,30 @@
+package com.fitcrm.security.model.dto;
+
+import com.fitcrm.security.model.enums.FailureReason;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Result of introspecting a single token, in the order of the request.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenIntrospectionDto {
+
+    private boolean active;
+    private FailureReason reason;
+    private Long userId;
+    private String subject;
+    private String role;
+    private String jti;
+    private Instant issuedAt;
+    private Instant expiresAt;
+    /**
+     * How long the caller may cache this result, never beyond the token's exp.
+     */
+    private long maxAgeSeconds;
+}
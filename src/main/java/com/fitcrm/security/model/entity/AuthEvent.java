@@ -0,0 +1,51 @@
+package com.fitcrm.security.model.entity;
+
+import com.fitcrm.security.model.enums.AuthEventType;
+import com.fitcrm.security.model.enums.FailureReason;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit record of one authentication event (login, refresh, revocation).
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "auth_events", indexes = {
+        @Index(name = "ix_auth_events_user_id", columnList = "user_id, occurred_at"),
+        @Index(name = "ix_auth_events_occurred_at", columnList = "occurred_at")
+})
+public class AuthEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private AuthEventType eventType;
+
+    @Column(name = "success", nullable = false)
+    private boolean success;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", nullable = false, length = 32)
+    private FailureReason reason;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "session_id", length = 36)
+    private String sessionId;
+
+    @Column(name = "subject")
+    private String subject;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -1,5 +1,6 @@
 package com.fitcrm.security.model.entity;
 
+import com.fitcrm.security.model.enums.SigningAlgorithm;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -18,9 +19,19 @@ public class JwtSigningKey {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "kid", nullable = false, unique = true, length = 64)
+    private String kid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "algorithm", nullable = false, length = 10)
+    private SigningAlgorithm algorithm;
+
     @Column(name = "signing_key", nullable = false, columnDefinition = "TEXT")
     private String signingKey;
 
+    @Column(name = "public_key", columnDefinition = "TEXT")
+    private String publicKey;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 }
\ No newline at end of file
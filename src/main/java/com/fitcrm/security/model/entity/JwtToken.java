@@ -1,43 +0,0 @@
-package com.fitcrm.security.model.entity;
-
-import com.fitcrm.security.model.enums.TokenType;
-import jakarta.persistence.*;
-import lombok.*;
-
-import java.time.LocalDateTime;
-
-/**
- * Entity representing stored JWT tokens.
- */
-@Entity
-@Getter
-@Setter
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-@Table(name = "jwt_tokens")
-public class JwtToken {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
-    @Column(name = "user_id", nullable = false)
-    private Long userId;
-
-    @Enumerated(EnumType.STRING)
-    @Column(name = "token_type", nullable = false, length = 20)
-    private TokenType tokenType;
-
-    @Column(name = "token_value", nullable = false, columnDefinition = "TEXT")
-    private String tokenValue;
-
-    @Column(name = "created_at", nullable = false)
-    private LocalDateTime createdAt;
-
-    @Column(name = "revoked", nullable = false)
-    private boolean revoked = false;
-
-    @Column(name = "revoked_at")
-    private LocalDateTime revokedAt;
-}
\ No newline at end of file
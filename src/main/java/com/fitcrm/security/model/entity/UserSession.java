@@ -0,0 +1,68 @@
+package com.fitcrm.security.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one logged-in device with its current token pair.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_sessions", indexes = {
+        @Index(name = "ux_user_sessions_access_hash", columnList = "access_hash", unique = true),
+        @Index(name = "ux_user_sessions_refresh_hash", columnList = "refresh_hash", unique = true),
+        @Index(name = "ix_user_sessions_user_id", columnList = "user_id, updated_at"),
+        @Index(name = "ix_user_sessions_updated_at", columnList = "updated_at")
+})
+public class UserSession {
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "access_hash", nullable = false, length = 64)
+    private String accessHash;
+
+    @Column(name = "access_jti", nullable = false, length = 36)
+    private String accessJti;
+
+    @Column(name = "access_expires_at", nullable = false)
+    private LocalDateTime accessExpiresAt;
+
+    @Column(name = "refresh_hash", nullable = false, length = 64)
+    private String refreshHash;
+
+    @Column(name = "refresh_jti", nullable = false, length = 36)
+    private String refreshJti;
+
+    @Column(name = "refresh_expires_at", nullable = false)
+    private LocalDateTime refreshExpiresAt;
+
+    @Column(name = "previous_refresh_hash", length = 64)
+    private String previousRefreshHash;
+
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Builder.Default
+    @Column(name = "revoked", nullable = false)
+    private boolean revoked = false;
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
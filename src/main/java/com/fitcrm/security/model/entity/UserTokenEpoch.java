@@ -0,0 +1,32 @@
+package com.fitcrm.security.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revocation epoch of a user: tokens issued before validAfter are rejected.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_token_epochs", indexes = {
+        @Index(name = "ix_user_token_epochs_updated_at", columnList = "updated_at"),
+        @Index(name = "ix_user_token_epochs_valid_after", columnList = "valid_after")
+})
+public class UserTokenEpoch {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "valid_after", nullable = false)
+    private LocalDateTime validAfter;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,15 @@
+package com.fitcrm.security.model.enums;
+
+/**
+ * What happens to an audit event when the audit queue is full.
+ */
+public enum AuditOverflowPolicy {
+    /**
+     * The event is dropped immediately, the request is never delayed.
+     */
+    DROP,
+    /**
+     * The request waits up to the block timeout for free space, then the event is dropped.
+     */
+    BLOCK
+}
@@ -0,0 +1,12 @@
+package com.fitcrm.security.model.enums;
+
+/**
+ * Kind of an audited authentication event.
+ */
+public enum AuthEventType {
+    LOGIN,
+    REFRESH,
+    LOGOUT,
+    SESSION_REVOKED,
+    TOKENS_REVOKED
+}
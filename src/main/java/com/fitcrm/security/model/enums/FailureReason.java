@@ -0,0 +1,20 @@
+package com.fitcrm.security.model.enums;
+
+/**
+ * Bounded set of failure reasons used as a metrics tag.
+ */
+public enum FailureReason {
+    NONE,
+    INVALID_TOKEN,
+    TOKEN_EXPIRED,
+    TOKEN_REVOKED,
+    TOKEN_REUSED,
+    INVALID_TOKEN_TYPE,
+    INVALID_CREDENTIALS,
+    USER_NOT_FOUND,
+    USER_INACTIVE,
+    USER_SERVICE_REJECTED,
+    USER_SERVICE_UNAVAILABLE,
+    DATABASE,
+    INTERNAL
+}
@@ -0,0 +1,17 @@
+package com.fitcrm.security.model.enums;
+
+/**
+ * How issued tokens are tracked for revocation.
+ */
+public enum RevocationMode {
+    /**
+     * One row per session (device) in user_sessions with its current token pair.
+     */
+    TOKEN_ROWS,
+    /**
+     * One "tokens valid after" timestamp per user in user_token_epochs.
+     * Single session per user: every login or refresh moves the timestamp forward,
+     * which signs the user out of all other devices. Use TOKEN_ROWS for multi-device sessions.
+     */
+    USER_EPOCH
+}
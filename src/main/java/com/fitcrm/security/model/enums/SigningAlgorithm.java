@@ -0,0 +1,9 @@
+package com.fitcrm.security.model.enums;
+
+/**
+ * Algorithm used to sign JWTs.
+ */
+public enum SigningAlgorithm {
+    HS512,
+    ES256
+}
@@ -0,0 +1,23 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.AuthEvent;
+
+import java.util.List;
+
+/**
+ * Хранилище журнала событий аутентификации. Реализация выбирается свойством security.audit.sink.
+ * Вызывается только потоком сброса журнала, пачками до batch-size событий.
+ */
+public interface AuthEventSink {
+
+    /**
+     * Имя хранилища для тега метрик.
+     */
+    String name();
+
+    /**
+     * Записывает пачку одной операцией (одним коммитом или одной записью в файл).
+     * Исключение означает, что не записано ни одно событие пачки.
+     */
+    void write(List<AuthEvent> batch);
+}
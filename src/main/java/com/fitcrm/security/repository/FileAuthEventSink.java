@@ -0,0 +1,88 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.AuthEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * События в локальном append-only файле, строка на событие, поля через табуляцию:
+ * occurredAt, eventType, success, reason, userId, sessionId, subject.
+ * Пачка — одна запись в канал и один fsync. Подходит для узлов, журнал которых
+ * собирает внешний агент; файл не ротируется самим сервисом.
+ */
+@Component
+@ConditionalOnProperty(name = "security.audit.sink", havingValue = "file")
+public class FileAuthEventSink implements AuthEventSink {
+
+    @Value("${security.audit.file.path:logs/auth-events.log}")
+    private String path;
+
+    @Value("${security.audit.file.fsync:true}")
+    private boolean fsync;
+
+    private FileChannel channel;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path file = Path.of(path).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void write(List<AuthEvent> batch) {
+        StringBuilder lines = new StringBuilder(batch.size() * 128);
+        for (AuthEvent event : batch) {
+            lines.append(event.getOccurredAt()).append('\t')
+                    .append(event.getEventType()).append('\t')
+                    .append(event.isSuccess()).append('\t')
+                    .append(event.getReason()).append('\t')
+                    .append(nullToEmpty(event.getUserId())).append('\t')
+                    .append(nullToEmpty(event.getSessionId())).append('\t')
+                    .append(sanitize(event.getSubject())).append('\n');
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append auth events to " + path, e);
+        }
+    }
+
+    private static Object nullToEmpty(Object value) {
+        return value == null ? "" : value;
+    }
+
+    // subject приходит из запроса: табуляция и переводы строк сломали бы формат
+    private static String sanitize(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,180 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.enums.TokenType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Токены в памяти процесса: для одного узла, тестов и бенчмарков.
+ * Состояние теряется при перезапуске, другие узлы его не видят.
+ */
+@Component
+@ConditionalOnProperty(name = "security.jwt.token-store", havingValue = "memory")
+public class InMemoryTokenStore implements TokenStore {
+
+    private final Map<String, StoredToken> byHash = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void savePair(StoredToken access, StoredToken refresh) {
+        Instant now = Instant.now();
+        byHash.put(access.tokenHash(), access);
+        byHash.put(refresh.tokenHash(), refresh);
+        sessions.put(refresh.sessionId(), new Session(refresh.userId(), access.tokenHash(), refresh.tokenHash(),
+                null, null, now, now, refresh.expiresAt()));
+        userSessions.computeIfAbsent(refresh.userId(), id -> ConcurrentHashMap.newKeySet()).add(refresh.sessionId());
+    }
+
+    @Override
+    public RotationResult rotatePair(String expectedRefreshHash, StoredToken access, StoredToken refresh,
+                                     Duration retryWindow) {
+        Instant now = Instant.now();
+        Session current = sessions.get(refresh.sessionId());
+        while (current != null && current.refreshHash().equals(expectedRefreshHash)) {
+            Session rotated = new Session(current.userId(), access.tokenHash(), refresh.tokenHash(),
+                    expectedRefreshHash, now, current.createdAt(), now, refresh.expiresAt());
+            if (sessions.replace(refresh.sessionId(), current, rotated)) {
+                byHash.remove(current.accessHash());
+                byHash.remove(current.refreshHash());
+                byHash.put(access.tokenHash(), access);
+                byHash.put(refresh.tokenHash(), refresh);
+                return RotationResult.ROTATED;
+            }
+            current = sessions.get(refresh.sessionId());
+        }
+        if (current == null) {
+            return RotationResult.REJECTED;
+        }
+        return expectedRefreshHash.equals(current.previousRefreshHash())
+                && current.rotatedAt().isAfter(now.minus(retryWindow))
+                ? RotationResult.RETRY
+                : RotationResult.REUSED;
+    }
+
+    @Override
+    public Optional<StoredToken> findActive(String tokenHash, TokenType type) {
+        StoredToken token = byHash.get(tokenHash);
+        if (token == null || token.type() != type || !token.expiresAt().isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(token);
+    }
+
+    @Override
+    public List<StoredToken> findAllActive(Collection<String> tokenHashes, TokenType type) {
+        List<StoredToken> result = new ArrayList<>();
+        for (String hash : tokenHashes) {
+            findActive(hash, type).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean revokeSession(Long userId, String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null || !session.userId().equals(userId) || !sessions.remove(sessionId, session)) {
+            return false;
+        }
+        byHash.remove(session.accessHash());
+        byHash.remove(session.refreshHash());
+        Set<String> ids = userSessions.get(userId);
+        if (ids != null) {
+            ids.remove(sessionId);
+        }
+        return true;
+    }
+
+    @Override
+    public int revokeAll(Collection<Long> userIds) {
+        int revoked = 0;
+        for (Long userId : userIds) {
+            Set<String> ids = userSessions.remove(userId);
+            if (ids == null) {
+                continue;
+            }
+            for (String sessionId : ids) {
+                Session session = sessions.remove(sessionId);
+                if (session != null) {
+                    byHash.remove(session.accessHash());
+                    byHash.remove(session.refreshHash());
+                    revoked++;
+                }
+            }
+        }
+        return revoked;
+    }
+
+    @Override
+    public Page<SessionInfo> findSessions(Long userId, Pageable pageable) {
+        Instant now = Instant.now();
+        List<SessionInfo> active = userSessions.getOrDefault(userId, Set.of()).stream()
+                .map(sessionId -> {
+                    Session session = sessions.get(sessionId);
+                    return session == null || !session.expiresAt().isAfter(now) ? null
+                            : new SessionInfo(sessionId, userId, session.createdAt(), session.updatedAt(),
+                            session.expiresAt());
+                })
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(SessionInfo::lastRefreshedAt).reversed())
+                .toList();
+        int from = (int) Math.min(pageable.getOffset(), active.size());
+        int to = Math.min(from + pageable.getPageSize(), active.size());
+        return new PageImpl<>(active.subList(from, to), pageable, active.size());
+    }
+
+    /**
+     * Отозванные сессии удаляются сразу, но другие узлы это хранилище не видят:
+     * все отзывы проходят через локальный индекс этого же узла.
+     */
+    @Override
+    public List<SessionState> findSessionStates(Instant since) {
+        Instant now = Instant.now();
+        List<SessionState> result = new ArrayList<>();
+        sessions.forEach((sessionId, session) -> {
+            if (!session.expiresAt().isAfter(now) || (since != null && !session.updatedAt().isAfter(since))) {
+                return;
+            }
+            StoredToken access = byHash.get(session.accessHash());
+            StoredToken refresh = byHash.get(session.refreshHash());
+            if (access != null && refresh != null) {
+                result.add(new SessionState(access, refresh, false));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public boolean supportsRevocationIndex() {
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-index.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        byHash.values().removeIf(token -> !token.expiresAt().isAfter(now));
+        sessions.values().removeIf(session -> !session.expiresAt().isAfter(now));
+        userSessions.values().forEach(ids -> ids.removeIf(sessionId -> !sessions.containsKey(sessionId)));
+        userSessions.values().removeIf(Set::isEmpty);
+    }
+
+    private record Session(Long userId, String accessHash, String refreshHash, String previousRefreshHash,
+                           Instant rotatedAt, Instant createdAt, Instant updatedAt, Instant expiresAt) {
+    }
+}
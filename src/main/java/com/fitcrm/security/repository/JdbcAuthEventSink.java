@@ -0,0 +1,48 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.AuthEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * События в таблице auth_events: пачка — один JDBC batch и один коммит.
+ * saveAll() здесь не подходит: с IDENTITY-ключом Hibernate вставляет строки по одной.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.audit.sink", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcAuthEventSink implements AuthEventSink {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO auth_events (event_type, success, reason, user_id, session_id, subject, occurred_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String name() {
+        return "jdbc";
+    }
+
+    @Override
+    @Transactional
+    public void write(List<AuthEvent> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, event) -> {
+            statement.setString(1, event.getEventType().name());
+            statement.setBoolean(2, event.isSuccess());
+            statement.setString(3, event.getReason().name());
+            statement.setObject(4, event.getUserId(), Types.BIGINT);
+            statement.setString(5, event.getSessionId());
+            statement.setString(6, event.getSubject());
+            statement.setTimestamp(7, Timestamp.valueOf(event.getOccurredAt()));
+        });
+    }
+}
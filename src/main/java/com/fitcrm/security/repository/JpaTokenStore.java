@@ -0,0 +1,139 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.UserSession;
+import com.fitcrm.security.model.enums.TokenType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сессии в таблице user_sessions (Postgres): одна строка на устройство с текущей парой токенов.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.jwt.token-store", havingValue = "jpa", matchIfMissing = true)
+public class JpaTokenStore implements TokenStore {
+
+    private final UserSessionRepository sessionRepo;
+
+    @Override
+    public void savePair(StoredToken access, StoredToken refresh) {
+        sessionRepo.insertSession(
+                refresh.sessionId(),
+                refresh.userId(),
+                access.tokenHash(),
+                access.jti(),
+                toLocal(access.expiresAt()),
+                refresh.tokenHash(),
+                refresh.jti(),
+                toLocal(refresh.expiresAt()),
+                LocalDateTime.now());
+    }
+
+    @Override
+    public RotationResult rotatePair(String expectedRefreshHash, StoredToken access, StoredToken refresh,
+                                     Duration retryWindow) {
+        LocalDateTime now = LocalDateTime.now();
+        int rotated = sessionRepo.rotateSession(
+                refresh.sessionId(),
+                expectedRefreshHash,
+                access.tokenHash(),
+                access.jti(),
+                toLocal(access.expiresAt()),
+                refresh.tokenHash(),
+                refresh.jti(),
+                toLocal(refresh.expiresAt()),
+                now);
+        if (rotated > 0) {
+            return RotationResult.ROTATED;
+        }
+        return sessionRepo.findById(refresh.sessionId())
+                .filter(session -> !session.isRevoked())
+                .map(session -> expectedRefreshHash.equals(session.getPreviousRefreshHash())
+                        && session.getRotatedAt().isAfter(now.minus(retryWindow))
+                        ? RotationResult.RETRY
+                        : RotationResult.REUSED)
+                .orElse(RotationResult.REJECTED);
+    }
+
+    @Override
+    public Optional<StoredToken> findActive(String tokenHash, TokenType type) {
+        Optional<UserSession> session = type == TokenType.ACCESS
+                ? sessionRepo.findByAccessHashAndRevokedFalse(tokenHash)
+                : sessionRepo.findByRefreshHashAndRevokedFalse(tokenHash);
+        return session.map(s -> toStored(s, type));
+    }
+
+    @Override
+    public List<StoredToken> findAllActive(Collection<String> tokenHashes, TokenType type) {
+        List<UserSession> sessions = type == TokenType.ACCESS
+                ? sessionRepo.findAllByAccessHashInAndRevokedFalse(tokenHashes)
+                : sessionRepo.findAllByRefreshHashInAndRevokedFalse(tokenHashes);
+        return sessions.stream()
+                .map(session -> toStored(session, type))
+                .toList();
+    }
+
+    @Override
+    public boolean revokeSession(Long userId, String sessionId) {
+        return sessionRepo.revokeSession(userId, sessionId, LocalDateTime.now()) > 0;
+    }
+
+    @Override
+    public int revokeAll(Collection<Long> userIds) {
+        return sessionRepo.revokeAllByUserIds(userIds, LocalDateTime.now());
+    }
+
+    @Override
+    public Page<SessionInfo> findSessions(Long userId, Pageable pageable) {
+        return sessionRepo.findAllByUserIdAndRevokedFalseAndRefreshExpiresAtAfterOrderByUpdatedAtDesc(
+                        userId, LocalDateTime.now(), pageable)
+                .map(session -> new SessionInfo(session.getId(), session.getUserId(),
+                        toInstant(session.getCreatedAt()), toInstant(session.getUpdatedAt()),
+                        toInstant(session.getRefreshExpiresAt())));
+    }
+
+    @Override
+    public List<SessionState> findSessionStates(Instant since) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserSession> sessions = since == null
+                ? sessionRepo.findAllByRefreshExpiresAtAfter(now)
+                : sessionRepo.findAllByUpdatedAtAfterOrRevokedAtAfter(toLocal(since), toLocal(since));
+        return sessions.stream()
+                .filter(session -> session.getRefreshExpiresAt().isAfter(now))
+                .map(session -> new SessionState(toStored(session, TokenType.ACCESS),
+                        toStored(session, TokenType.REFRESH), session.isRevoked()))
+                .toList();
+    }
+
+    @Override
+    public boolean supportsRevocationIndex() {
+        return true;
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static StoredToken toStored(UserSession session, TokenType type) {
+        return type == TokenType.ACCESS
+                ? new StoredToken(session.getUserId(), session.getId(), type, session.getAccessHash(),
+                        session.getAccessJti(), toInstant(session.getAccessExpiresAt()))
+                : new StoredToken(session.getUserId(), session.getId(), type, session.getRefreshHash(),
+                        session.getRefreshJti(), toInstant(session.getRefreshExpiresAt()));
+    }
+}
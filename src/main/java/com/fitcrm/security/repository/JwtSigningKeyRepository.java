@@ -2,13 +2,39 @@ package com.fitcrm.security.repository;
 
 import com.fitcrm.security.model.entity.JwtSigningKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface JwtSigningKeyRepository extends JpaRepository<JwtSigningKey, Long> {
     @Query(value = "SELECT * FROM jwt_signing_keys ORDER BY created_at DESC LIMIT 1", nativeQuery = true)
     Optional<JwtSigningKey> findLatestKey();
+
+    List<JwtSigningKey> findAllByCreatedAtAfterOrderByCreatedAtDesc(LocalDateTime createdAt);
+
+    Optional<JwtSigningKey> findFirstByCreatedAtLessThanEqualOrderByCreatedAtDesc(LocalDateTime createdAt);
+
+    List<JwtSigningKey> findAllBySigningKeyNotLike(String pattern);
+
+    /**
+     * Заменяет зашифрованный ключ, только если строка еще содержит прежнее значение
+     * (ее не перешифровал параллельно другой узел).
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE JwtSigningKey k
+            SET k.signingKey = :encrypted
+            WHERE k.id = :id AND k.signingKey = :previous
+            """)
+    int replaceSigningKey(@Param("id") Long id,
+                          @Param("previous") String previous,
+                          @Param("encrypted") String encrypted);
 }
\ No newline at end of file
@@ -0,0 +1,269 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.enums.TokenType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Токены в Redis (или совместимом по протоколу хранилище).
+ * Ключи:
+ * <pre>
+ * {prefix}t:{TYPE}:{hash}  -> userId|sessionId|jti|expEpochMillis, TTL = срок жизни токена
+ * {prefix}s:{sessionId}    -> HASH user, access, refresh, previous, rotated, created, updated, exp;
+ *                             TTL = срок жизни refresh-токена сессии
+ * {prefix}u:{userId}       -> ZSET sessionId со score = exp refresh-токена сессии
+ * </pre>
+ * Новая сессия, ротация и отзыв сессии — по одному Lua-скрипту (один round trip, атомарно),
+ * массовый отзыв — конвейер скриптов. Истекшие ключи удаляет сам Redis по TTL,
+ * истекшие сессии из ZSET пользователя — следующая запись в него.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "security.jwt.token-store", havingValue = "redis")
+public class RedisTokenStore implements TokenStore {
+
+    // KEYS: session, access token, refresh token, user
+    // ARGV: accessHash, accessValue, accessTtl, refreshHash, refreshValue, refreshTtl, userId, now, sessionId, refreshExp
+    private static final RedisScript<Long> SAVE_PAIR = RedisScript.of("""
+            redis.call('HSET', KEYS[1], 'user', ARGV[7], 'access', ARGV[1], 'refresh', ARGV[4],
+                       'created', ARGV[8], 'updated', ARGV[8], 'exp', ARGV[10])
+            redis.call('PEXPIRE', KEYS[1], ARGV[6])
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+            redis.call('SET', KEYS[3], ARGV[5], 'PX', ARGV[6])
+            redis.call('ZADD', KEYS[4], ARGV[10], ARGV[9])
+            redis.call('ZREMRANGEBYSCORE', KEYS[4], '-inf', ARGV[8])
+            redis.call('PEXPIRE', KEYS[4], ARGV[6])
+            return 1
+            """, Long.class);
+
+    /**
+     * Как SAVE_PAIR для существующей сессии, но только если ее текущий refresh равен ожидаемому.
+     * Возвращает 0 — заменено, 1 — повтор в окне, 2 — повторное использование, 3 — сессии нет.
+     * Дополнительные ARGV: expectedHash, retryWindowMs, accessPrefix, refreshPrefix.
+     */
+    private static final RedisScript<Long> ROTATE_PAIR = RedisScript.of("""
+            local expected, now = ARGV[11], tonumber(ARGV[8])
+            local s = redis.call('HMGET', KEYS[1], 'refresh', 'previous', 'rotated', 'access')
+            if s[1] ~= expected then
+              if not s[1] then return 3 end
+              if s[2] == expected and now - tonumber(s[3]) < tonumber(ARGV[12]) then return 1 end
+              return 2
+            end
+            redis.call('DEL', ARGV[13] .. s[4], ARGV[14] .. s[1])
+            redis.call('HSET', KEYS[1], 'access', ARGV[1], 'refresh', ARGV[4], 'previous', expected,
+                       'rotated', ARGV[8], 'updated', ARGV[8], 'exp', ARGV[10])
+            redis.call('PEXPIRE', KEYS[1], ARGV[6])
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+            redis.call('SET', KEYS[3], ARGV[5], 'PX', ARGV[6])
+            redis.call('ZADD', KEYS[4], ARGV[10], ARGV[9])
+            redis.call('PEXPIRE', KEYS[4], ARGV[6])
+            return 0
+            """, Long.class);
+
+    private static final RotationResult[] ROTATION_RESULTS = {
+            RotationResult.ROTATED, RotationResult.RETRY, RotationResult.REUSED, RotationResult.REJECTED
+    };
+
+    // KEYS: session, user; ARGV: userId, sessionId, accessPrefix, refreshPrefix
+    private static final RedisScript<Long> REVOKE_SESSION = RedisScript.of("""
+            local s = redis.call('HMGET', KEYS[1], 'user', 'access', 'refresh')
+            if s[1] ~= ARGV[1] then return 0 end
+            redis.call('DEL', ARGV[3] .. s[2], ARGV[4] .. s[3], KEYS[1])
+            redis.call('ZREM', KEYS[2], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // KEYS: user; ARGV: sessionPrefix, accessPrefix, refreshPrefix
+    private static final byte[] REVOKE_USER = """
+            local revoked = 0
+            for _, sid in ipairs(redis.call('ZRANGE', KEYS[1], 0, -1)) do
+              local s = redis.call('HMGET', ARGV[1] .. sid, 'access', 'refresh')
+              if s[1] then
+                redis.call('DEL', ARGV[2] .. s[1], ARGV[3] .. s[2], ARGV[1] .. sid)
+                revoked = revoked + 1
+              end
+            end
+            redis.call('DEL', KEYS[1])
+            return revoked
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${security.jwt.token-store-redis.key-prefix:fitcrm:jwt:}")
+    private String keyPrefix;
+
+    @Override
+    public void savePair(StoredToken access, StoredToken refresh) {
+        long now = System.currentTimeMillis();
+        redisTemplate.execute(SAVE_PAIR, pairKeys(access, refresh), pairArgs(access, refresh, now));
+    }
+
+    @Override
+    public RotationResult rotatePair(String expectedRefreshHash, StoredToken access, StoredToken refresh,
+                                     Duration retryWindow) {
+        long now = System.currentTimeMillis();
+        List<Object> args = new ArrayList<>(List.of(pairArgs(access, refresh, now)));
+        args.add(expectedRefreshHash);
+        args.add(Long.toString(retryWindow.toMillis()));
+        args.add(tokenKeyPrefix(TokenType.ACCESS));
+        args.add(tokenKeyPrefix(TokenType.REFRESH));
+        Long result = redisTemplate.execute(ROTATE_PAIR, pairKeys(access, refresh), args.toArray());
+        return ROTATION_RESULTS[result == null ? 3 : result.intValue()];
+    }
+
+    @Override
+    public Optional<StoredToken> findActive(String tokenHash, TokenType type) {
+        String value = redisTemplate.opsForValue().get(tokenKey(type, tokenHash));
+        return Optional.ofNullable(value).map(v -> decode(v, type, tokenHash));
+    }
+
+    @Override
+    public List<StoredToken> findAllActive(Collection<String> tokenHashes, TokenType type) {
+        List<String> hashes = List.copyOf(tokenHashes);
+        List<String> values = redisTemplate.opsForValue().multiGet(hashes.stream().map(hash -> tokenKey(type, hash)).toList());
+        List<StoredToken> result = new ArrayList<>();
+        for (int i = 0; values != null && i < hashes.size(); i++) {
+            if (values.get(i) != null) {
+                result.add(decode(values.get(i), type, hashes.get(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean revokeSession(Long userId, String sessionId) {
+        Long revoked = redisTemplate.execute(REVOKE_SESSION,
+                List.of(sessionKey(sessionId), userKey(userId)),
+                userId.toString(), sessionId, tokenKeyPrefix(TokenType.ACCESS), tokenKeyPrefix(TokenType.REFRESH));
+        return revoked != null && revoked > 0;
+    }
+
+    @Override
+    public int revokeAll(Collection<Long> userIds) {
+        byte[] sessionPrefix = bytes(keyPrefix + "s:");
+        byte[] accessPrefix = bytes(tokenKeyPrefix(TokenType.ACCESS));
+        byte[] refreshPrefix = bytes(tokenKeyPrefix(TokenType.REFRESH));
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                evalRevoke(connection, userId, sessionPrefix, accessPrefix, refreshPrefix);
+            }
+            return null;
+        });
+        return results.stream().mapToInt(result -> ((Number) result).intValue()).sum();
+    }
+
+    @Override
+    public Page<SessionInfo> findSessions(Long userId, Pageable pageable) {
+        String userKey = userKey(userId);
+        double now = System.currentTimeMillis();
+        Long total = redisTemplate.opsForZSet().count(userKey, now, Double.POSITIVE_INFINITY);
+        List<String> sessionIds = List.copyOf(redisTemplate.opsForZSet().reverseRangeByScore(
+                userKey, now, Double.POSITIVE_INFINITY, pageable.getOffset(), pageable.getPageSize()));
+
+        List<Object> fields = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String sessionId : sessionIds) {
+                connection.hashCommands().hMGet(bytes(sessionKey(sessionId)),
+                        bytes("created"), bytes("updated"), bytes("exp"));
+            }
+            return null;
+        });
+        List<SessionInfo> sessions = new ArrayList<>(sessionIds.size());
+        for (int i = 0; i < sessionIds.size(); i++) {
+            List<?> values = (List<?>) fields.get(i);
+            if (values.get(0) != null) {
+                sessions.add(new SessionInfo(sessionIds.get(i), userId, instant(values.get(0)), instant(values.get(1)),
+                        instant(values.get(2))));
+            }
+        }
+        return new PageImpl<>(sessions, pageable, total == null ? sessions.size() : total);
+    }
+
+    /**
+     * Отзыв удаляет ключи сессии и токенов, поэтому отозванные сессии здесь не найти.
+     */
+    @Override
+    public List<SessionState> findSessionStates(Instant since) {
+        return List.of();
+    }
+
+    @Override
+    public boolean supportsRevocationIndex() {
+        return false;
+    }
+
+    private void evalRevoke(RedisConnection connection, Long userId, byte[] sessionPrefix, byte[] accessPrefix,
+                            byte[] refreshPrefix) {
+        connection.scriptingCommands().eval(REVOKE_USER, ReturnType.INTEGER, 1,
+                bytes(userKey(userId)), sessionPrefix, accessPrefix, refreshPrefix);
+    }
+
+    private List<String> pairKeys(StoredToken access, StoredToken refresh) {
+        return List.of(sessionKey(refresh.sessionId()), tokenKey(TokenType.ACCESS, access.tokenHash()),
+                tokenKey(TokenType.REFRESH, refresh.tokenHash()), userKey(refresh.userId()));
+    }
+
+    private static Object[] pairArgs(StoredToken access, StoredToken refresh, long now) {
+        return new Object[]{
+                access.tokenHash(), encode(access), ttlMillis(access, now),
+                refresh.tokenHash(), encode(refresh), ttlMillis(refresh, now),
+                refresh.userId().toString(), Long.toString(now), refresh.sessionId(),
+                Long.toString(refresh.expiresAt().toEpochMilli())
+        };
+    }
+
+    private String tokenKeyPrefix(TokenType type) {
+        return keyPrefix + "t:" + type.name() + ":";
+    }
+
+    private String tokenKey(TokenType type, String hash) {
+        return tokenKeyPrefix(type) + hash;
+    }
+
+    private String sessionKey(String sessionId) {
+        return keyPrefix + "s:" + sessionId;
+    }
+
+    private String userKey(Long userId) {
+        return keyPrefix + "u:" + userId;
+    }
+
+    private static String ttlMillis(StoredToken token, long now) {
+        return Long.toString(Math.max(1, token.expiresAt().toEpochMilli() - now));
+    }
+
+    private static String encode(StoredToken token) {
+        return token.userId() + "|" + token.sessionId() + "|" + token.jti() + "|" + token.expiresAt().toEpochMilli();
+    }
+
+    private static StoredToken decode(String value, TokenType type, String hash) {
+        String[] fields = value.split("\\|");
+        return new StoredToken(Long.parseLong(fields[0]), fields[1], type, hash, fields[2],
+                Instant.ofEpochMilli(Long.parseLong(fields[3])));
+    }
+
+    private static Instant instant(Object epochMillis) {
+        return Instant.ofEpochMilli(Long.parseLong((String) epochMillis));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
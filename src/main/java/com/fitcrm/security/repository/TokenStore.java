@@ -0,0 +1,107 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.enums.TokenType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище выданных токенов: по одной паре ACCESS + REFRESH на сессию (устройство),
+ * у пользователя может быть несколько сессий одновременно.
+ * Реализация выбирается настройкой security.jwt.token-store: jpa (по умолчанию), memory, redis.
+ */
+public interface TokenStore {
+
+    /**
+     * Открывает новую сессию с парой токенов. Остальные сессии пользователя не меняются.
+     */
+    void savePair(StoredToken access, StoredToken refresh);
+
+    /**
+     * Атомарно заменяет пару сессии, если ее текущий REFRESH-токен все еще expectedRefreshHash.
+     * Если нет — сообщает, был ли expectedRefreshHash заменен ротацией и как давно.
+     * sid подписан в токене, поэтому любой не текущий refresh живой сессии — ее прежний токен:
+     * хранить историю хешей не нужно, повтор отличается от кражи только предыдущим хешем и окном.
+     */
+    RotationResult rotatePair(String expectedRefreshHash, StoredToken access, StoredToken refresh, Duration retryWindow);
+
+    /**
+     * Действующий (не отозванный и не замененный) токен по SHA-256 хешу.
+     */
+    Optional<StoredToken> findActive(String tokenHash, TokenType type);
+
+    /**
+     * Действующие токены из набора хешей за одно обращение к хранилищу.
+     */
+    List<StoredToken> findAllActive(Collection<String> tokenHashes, TokenType type);
+
+    /**
+     * Отзывает одну сессию пользователя.
+     *
+     * @return false, если у пользователя нет такой действующей сессии
+     */
+    boolean revokeSession(Long userId, String sessionId);
+
+    /**
+     * Отзывает все сессии пользователей.
+     *
+     * @return количество отозванных сессий
+     */
+    int revokeAll(Collection<Long> userIds);
+
+    /**
+     * Действующие сессии пользователя, последние обновленные первыми.
+     */
+    Page<SessionInfo> findSessions(Long userId, Pageable pageable);
+
+    /**
+     * Сессии с неистекшим refresh-токеном, включая отозванные, измененные после since (null — все).
+     * По ним локальный индекс отзыва загружается при старте и догоняет пропущенные события других узлов.
+     */
+    List<SessionState> findSessionStates(Instant since);
+
+    /**
+     * true — хранилище помнит отозванные сессии и findSessionStates отдает все изменения.
+     * Иначе локальный индекс отзыва не отличит отозванный на другом узле токен от действующего
+     * и не используется: каждая проверка идет в хранилище.
+     */
+    boolean supportsRevocationIndex();
+
+    enum RotationResult {
+        /**
+         * Пара заменена.
+         */
+        ROTATED,
+        /**
+         * Токен только что заменен другим запросом (повтор клиента в пределах retryWindow).
+         */
+        RETRY,
+        /**
+         * Прежний токен живой сессии: предыдущий — вне retryWindow, более старый — всегда. Признак кражи.
+         */
+        REUSED,
+        /**
+         * Сессия отозвана, истекла или неизвестна.
+         */
+        REJECTED
+    }
+
+    record StoredToken(Long userId, String sessionId, TokenType type, String tokenHash, String jti,
+                       Instant expiresAt) {
+    }
+
+    record SessionState(StoredToken access, StoredToken refresh, boolean revoked) {
+    }
+
+    /**
+     * @param lastRefreshedAt логин или последняя ротация
+     * @param expiresAt       срок действия текущего refresh-токена сессии
+     */
+    record SessionInfo(String sessionId, Long userId, Instant createdAt, Instant lastRefreshedAt, Instant expiresAt) {
+    }
+}
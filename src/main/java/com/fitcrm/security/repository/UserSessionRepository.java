@@ -0,0 +1,140 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.UserSession;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserSessionRepository extends JpaRepository<UserSession, String> {
+
+    Optional<UserSession> findByAccessHashAndRevokedFalse(String accessHash);
+
+    Optional<UserSession> findByRefreshHashAndRevokedFalse(String refreshHash);
+
+    List<UserSession> findAllByAccessHashInAndRevokedFalse(Collection<String> accessHashes);
+
+    List<UserSession> findAllByRefreshHashInAndRevokedFalse(Collection<String> refreshHashes);
+
+    List<UserSession> findAllByRefreshExpiresAtAfter(LocalDateTime moment);
+
+    List<UserSession> findAllByUpdatedAtAfterOrRevokedAtAfter(LocalDateTime updatedAfter, LocalDateTime revokedAfter);
+
+    /**
+     * Действующие сессии пользователя, последние обновленные первыми (индекс по user_id, updated_at).
+     */
+    Page<UserSession> findAllByUserIdAndRevokedFalseAndRefreshExpiresAtAfterOrderByUpdatedAtDesc(
+            Long userId, LocalDateTime moment, Pageable pageable);
+
+    /**
+     * Новая сессия одним INSERT, без предварительного SELECT, который делает save() для заданного id.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_sessions (id, user_id,
+                                       access_hash, access_jti, access_expires_at,
+                                       refresh_hash, refresh_jti, refresh_expires_at,
+                                       created_at, updated_at, revoked)
+            VALUES (:sessionId, :userId,
+                    :accessHash, :accessJti, :accessExpiresAt,
+                    :refreshHash, :refreshJti, :refreshExpiresAt,
+                    :createdAt, :createdAt, FALSE)
+            """, nativeQuery = true)
+    int insertSession(@Param("sessionId") String sessionId,
+                      @Param("userId") Long userId,
+                      @Param("accessHash") String accessHash,
+                      @Param("accessJti") String accessJti,
+                      @Param("accessExpiresAt") LocalDateTime accessExpiresAt,
+                      @Param("refreshHash") String refreshHash,
+                      @Param("refreshJti") String refreshJti,
+                      @Param("refreshExpiresAt") LocalDateTime refreshExpiresAt,
+                      @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Ротация пары как compare-and-swap: строка сессии обновляется, только если в ней все еще
+     * хранится expectedHash и она не отозвана. Конкурирующий запрос с тем же токеном ждет
+     * блокировку строки и после коммита первого не проходит условие refresh_hash = expectedHash.
+     * Контекст персистентности очищается: сессия, прочитанная до обновления (поиск sid старого токена
+     * по хешу), иначе осталась бы в нем с прежними значениями.
+     *
+     * @return 1 — пара заменена, 0 — токен уже не текущий
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE user_sessions
+            SET access_hash           = :accessHash,
+                access_jti            = :accessJti,
+                access_expires_at     = :accessExpiresAt,
+                refresh_hash          = :refreshHash,
+                refresh_jti           = :refreshJti,
+                refresh_expires_at    = :refreshExpiresAt,
+                previous_refresh_hash = refresh_hash,
+                rotated_at            = :updatedAt,
+                updated_at            = :updatedAt
+            WHERE id = :sessionId AND refresh_hash = :expectedHash AND revoked = FALSE
+            """, nativeQuery = true)
+    int rotateSession(@Param("sessionId") String sessionId,
+                      @Param("expectedHash") String expectedHash,
+                      @Param("accessHash") String accessHash,
+                      @Param("accessJti") String accessJti,
+                      @Param("accessExpiresAt") LocalDateTime accessExpiresAt,
+                      @Param("refreshHash") String refreshHash,
+                      @Param("refreshJti") String refreshJti,
+                      @Param("refreshExpiresAt") LocalDateTime refreshExpiresAt,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Отзывает одну сессию пользователя (поиск по первичному ключу).
+     */
+    @Modifying
+    @Query("""
+            UPDATE UserSession s
+            SET s.revoked = true, s.revokedAt = :revokedAt
+            WHERE s.id = :sessionId AND s.userId = :userId AND s.revoked = false
+            """)
+    int revokeSession(@Param("userId") Long userId,
+                      @Param("sessionId") String sessionId,
+                      @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * Отзывает все действующие сессии указанных пользователей одним оператором.
+     */
+    @Modifying
+    @Query("""
+            UPDATE UserSession s
+            SET s.revoked = true, s.revokedAt = :revokedAt
+            WHERE s.userId IN :userIds AND s.revoked = false
+            """)
+    int revokeAllByUserIds(@Param("userIds") Collection<Long> userIds,
+                           @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * Удаляет не более batchSize устаревших сессий в собственной транзакции.
+     * Строки, заблокированные выдачей или отзывом токенов, пропускаются.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM user_sessions
+            WHERE id IN (
+                SELECT id FROM user_sessions
+                WHERE updated_at < :updatedBefore
+                   OR (revoked AND revoked_at < :revokedBefore)
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgeBatch(@Param("updatedBefore") LocalDateTime updatedBefore,
+                   @Param("revokedBefore") LocalDateTime revokedBefore,
+                   @Param("batchSize") int batchSize);
+}
@@ -0,0 +1,37 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.entity.UserTokenEpoch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserTokenEpochRepository extends JpaRepository<UserTokenEpoch, Long>, UserTokenEpochRepositoryCustom {
+
+    List<UserTokenEpoch> findAllByValidAfterAfter(LocalDateTime moment);
+
+    List<UserTokenEpoch> findAllByUpdatedAtAfter(LocalDateTime moment);
+
+    /**
+     * Удаляет не более batchSize эпох, которые уже не могут отозвать ни один действующий токен.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM user_token_epochs
+            WHERE user_id IN (
+                SELECT user_id FROM user_token_epochs
+                WHERE valid_after < :validBefore
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgeBatch(@Param("validBefore") LocalDateTime validBefore,
+                   @Param("batchSize") int batchSize);
+}
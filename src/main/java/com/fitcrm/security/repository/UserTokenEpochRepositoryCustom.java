@@ -0,0 +1,14 @@
+package com.fitcrm.security.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface UserTokenEpochRepositoryCustom {
+
+    /**
+     * Сдвигает метку valid_after пользователей вперед (но никогда не назад) одним batch-запросом.
+     *
+     * @return количество затронутых пользователей
+     */
+    int advanceValidAfter(Collection<Long> userIds, LocalDateTime validAfter, LocalDateTime updatedAt);
+}
@@ -0,0 +1,36 @@
+package com.fitcrm.security.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserTokenEpochRepositoryCustomImpl implements UserTokenEpochRepositoryCustom {
+
+    private static final String ADVANCE_SQL = """
+            INSERT INTO user_token_epochs (user_id, valid_after, updated_at)
+            VALUES (?, ?, ?)
+            ON CONFLICT (user_id) DO UPDATE
+            SET valid_after = GREATEST(user_token_epochs.valid_after, EXCLUDED.valid_after),
+                updated_at  = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int advanceValidAfter(Collection<Long> userIds, LocalDateTime validAfter, LocalDateTime updatedAt) {
+        Timestamp validAfterTs = Timestamp.valueOf(validAfter);
+        Timestamp updatedAtTs = Timestamp.valueOf(updatedAt);
+        List<Object[]> rows = userIds.stream()
+                .map(userId -> new Object[]{userId, validAfterTs, updatedAtTs})
+                .toList();
+        return Arrays.stream(jdbcTemplate.batchUpdate(ADVANCE_SQL, rows))
+                .map(count -> count < 0 ? 1 : count)
+                .sum();
+    }
+}
@@ -0,0 +1,245 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.entity.AuthEvent;
+import com.fitcrm.security.model.enums.AuditOverflowPolicy;
+import com.fitcrm.security.model.enums.AuthEventType;
+import com.fitcrm.security.model.enums.FailureReason;
+import com.fitcrm.security.repository.AuthEventSink;
+import com.fitcrm.security.utils.TransactionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал событий аутентификации вне пути запроса.
+ * Запрос только кладет событие в неблокирующую очередь ограниченной емкости;
+ * отдельный поток сбрасывает очередь в {@link AuthEventSink} пачками по batch-size
+ * или раз в flush-interval. При переполнении событие отбрасывается сразу (DROP)
+ * или после ожидания свободного места до block-timeout (BLOCK).
+ * Доставка не гарантируется: события в очереди теряются при аварийной остановке узла,
+ * события после stop() отбрасываются, пачка, которую не удалось записать, повторяется
+ * один раз через flush-interval и после второй ошибки теряется.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuthAuditLog {
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+    private static final int WRITE_ATTEMPTS = 2;
+
+    private final AuthEventSink sink;
+    private final AuthMetrics authMetrics;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.audit.queue-capacity:65536}")
+    private int queueCapacity;
+
+    @Value("${security.audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${security.audit.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${security.audit.overflow-policy:DROP}")
+    private AuditOverflowPolicy overflowPolicy;
+
+    @Value("${security.audit.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    // емкость очереди держит счетчик depth: место резервируется CAS до вставки
+    private final Queue<AuthEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile boolean running;
+    // выставляет stop(); поток сброса после финального drain выставляет closed и проверяет очередь еще раз
+    private volatile boolean stopped;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() {
+        meterRegistry.gauge("auth.audit.queue.depth", depth);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform().daemon().name("auth-audit-flusher").start(this::flushLoop);
+    }
+
+    /**
+     * Останавливает поток сброса, предварительно записав все, что осталось в очереди.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join(SHUTDOWN_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Успешное событие. Внутри транзакции попадает в журнал только после ее коммита.
+     */
+    public void success(AuthEventType type, Long userId, String sessionId, String subject) {
+        AuthEvent event = event(type, true, FailureReason.NONE, userId, sessionId, subject);
+        TransactionUtil.afterCommit(() -> enqueue(event));
+    }
+
+    /**
+     * Неудачная попытка; причина классифицируется так же, как в метриках.
+     */
+    public void failure(AuthEventType type, Throwable failure, Long userId, String sessionId, String subject) {
+        enqueue(event(type, false, AuthMetrics.classify(failure), userId, sessionId, subject));
+    }
+
+    /**
+     * Отзыв сессии самим сервисом, например при повторном предъявлении refresh-токена.
+     */
+    public void sessionRevoked(Long userId, String sessionId, FailureReason cause) {
+        AuthEvent event = event(AuthEventType.SESSION_REVOKED, true, cause, userId, sessionId, null);
+        TransactionUtil.afterCommit(() -> enqueue(event));
+    }
+
+    int depth() {
+        return depth.get();
+    }
+
+    private static AuthEvent event(AuthEventType type, boolean success, FailureReason reason,
+                                   Long userId, String sessionId, String subject) {
+        return AuthEvent.builder()
+                .eventType(type)
+                .success(success)
+                .reason(reason)
+                .userId(userId)
+                .sessionId(sessionId)
+                .subject(subject)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void enqueue(AuthEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int size = stopped ? 0 : reserve();
+        if (size == 0) {
+            authMetrics.count("auth.audit.events", Tags.of("result", "dropped"));
+            return;
+        }
+        queue.offer(event);
+        // событие разминулось с финальным сбросом: забираем его сами, если поток сброса его не взял
+        if (closed && queue.remove(event)) {
+            depth.decrementAndGet();
+            authMetrics.count("auth.audit.events", Tags.of("result", "dropped"));
+            return;
+        }
+        if (size == batchSize) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * @return глубина очереди с учетом нового события или 0, если места нет
+     */
+    private int reserve() {
+        int size = tryReserve();
+        if (size > 0 || overflowPolicy == AuditOverflowPolicy.DROP) {
+            return size;
+        }
+        LockSupport.unpark(flusher);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        while (size == 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            size = tryReserve();
+        }
+        return size;
+    }
+
+    private int tryReserve() {
+        int size;
+        do {
+            size = depth.get();
+            if (size >= queueCapacity) {
+                return 0;
+            }
+        } while (!depth.compareAndSet(size, size + 1));
+        return size + 1;
+    }
+
+    private void flushLoop() {
+        List<AuthEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (depth.get() < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+            drain(batch);
+        }
+        drain(batch);
+        closed = true;
+        drain(batch);
+    }
+
+    /**
+     * Сбрасывает очередь полными пачками, пока она не опустеет.
+     */
+    private void drain(List<AuthEvent> batch) {
+        int polled;
+        do {
+            AuthEvent event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            polled = batch.size();
+            if (polled == 0) {
+                return;
+            }
+            depth.addAndGet(-polled);
+            write(batch);
+            batch.clear();
+        } while (polled == batchSize);
+    }
+
+    /**
+     * Ошибка записи означает, что не записано ни одно событие пачки (см. {@link AuthEventSink}),
+     * поэтому повтор не создает дубликатов.
+     */
+    private void write(List<AuthEvent> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                authMetrics.run("auth.audit.flush", Tags.of("sink", sink.name()), () -> sink.write(batch));
+                authMetrics.count("auth.audit.events", Tags.of("result", "written"), batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt < WRITE_ATTEMPTS) {
+                    log.debug("Retrying {} auth events to {} sink: {}", batch.size(), sink.name(), e.getMessage());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                    continue;
+                }
+                authMetrics.count("auth.audit.events", Tags.of("result", "failed"), batch.size());
+                log.warn("Failed to write {} auth events to {} sink: {}", batch.size(), sink.name(), e.getMessage());
+                return;
+            }
+        }
+    }
+}
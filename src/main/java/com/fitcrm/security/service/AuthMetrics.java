@@ -0,0 +1,110 @@
+package com.fitcrm.security.service;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.fitcrm.security.exception.TokenRejectedException;
+import com.fitcrm.security.model.enums.FailureReason;
+import feign.FeignException;
+import feign.RetryableException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Таймеры этапов аутентификации.
+ * Каждый замер получает теги outcome (success/failure) и reason из {@link FailureReason},
+ * поэтому кардинальность ограничена набором этапов и причин.
+ * Таймеры создаются один раз на сочетание тегов и дальше берутся из локального кэша.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public <T> T record(String name, Tags tags, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            stop(name, tags, start, null);
+            return result;
+        } catch (RuntimeException e) {
+            stop(name, tags, start, e);
+            throw e;
+        }
+    }
+
+    public void run(String name, Tags tags, Runnable action) {
+        record(name, tags, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void count(String name, Tags tags) {
+        count(name, tags, 1);
+    }
+
+    public void count(String name, Tags tags, long amount) {
+        meterRegistry.counter(name, tags).increment(amount);
+    }
+
+    private void stop(String name, Tags tags, long start, RuntimeException failure) {
+        FailureReason reason = failure == null ? FailureReason.NONE : classify(failure);
+        timers.computeIfAbsent(new TimerKey(name, tags, failure == null, reason), this::register)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(key.name())
+                .tags(key.tags())
+                .tag("outcome", key.success() ? "success" : "failure")
+                .tag("reason", key.reason().name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+    }
+
+    static FailureReason classify(Throwable failure) {
+        if (failure instanceof TokenRejectedException rejected) {
+            return rejected.getReason();
+        }
+        if (failure instanceof TokenExpiredException) {
+            return FailureReason.TOKEN_EXPIRED;
+        }
+        if (failure instanceof JWTVerificationException) {
+            return FailureReason.INVALID_TOKEN;
+        }
+        if (failure instanceof CallNotPermittedException
+                || failure instanceof BulkheadFullException
+                || failure instanceof RetryableException
+                || failure instanceof FeignException.FeignServerException) {
+            return FailureReason.USER_SERVICE_UNAVAILABLE;
+        }
+        if (failure instanceof FeignException feign) {
+            return switch (feign.status()) {
+                case 400, 401, 403 -> FailureReason.INVALID_CREDENTIALS;
+                case 404 -> FailureReason.USER_NOT_FOUND;
+                default -> FailureReason.USER_SERVICE_REJECTED;
+            };
+        }
+        if (failure instanceof DataAccessException) {
+            return FailureReason.DATABASE;
+        }
+        return FailureReason.INTERNAL;
+    }
+
+    private record TimerKey(String name, Tags tags, boolean success, FailureReason reason) {
+    }
+}
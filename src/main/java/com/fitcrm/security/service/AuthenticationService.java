@@ -1,56 +1,137 @@
 package com.fitcrm.security.service;
 
-import com.fitcrm.security.clients.UserServiceClient;
+import com.fitcrm.security.clients.UserServiceGateway;
+import com.fitcrm.security.exception.TokenRejectedException;
 import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.model.dto.IntrospectRequestDto;
+import com.fitcrm.security.model.dto.IntrospectResponseDto;
 import com.fitcrm.security.model.dto.LoginRequestDto;
 import com.fitcrm.security.model.dto.RefreshTokenRequestDto;
+import com.fitcrm.security.model.dto.SessionDto;
+import com.fitcrm.security.model.dto.SessionPageDto;
+import com.fitcrm.security.model.dto.TokenIntrospectionDto;
 import com.fitcrm.security.model.dto.UserDto;
+import com.fitcrm.security.model.enums.AuthEventType;
+import com.fitcrm.security.repository.TokenStore;
+import io.micrometer.core.instrument.Tags;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
 
+    private static final int MAX_SESSIONS_PAGE_SIZE = 100;
+
     private final JwtService jwtService;
-    private final UserServiceClient userClient;
+    private final UserServiceGateway userGateway;
+    private final UserCacheService userCache;
+    private final AuthMetrics authMetrics;
+    private final AuthAuditLog auditLog;
 
     /**
      * Логин пользователя:
      * проверяет email+пароль, выдает access+refresh и сохраняет их в БД.
      */
     public AuthTokensDto login(LoginRequestDto request) {
-        String email = request.getEmail();
+        return authMetrics.record("auth.login", Tags.empty(), () -> {
+            String email = request.getEmail();
+            try {
+                UserDto user = userGateway.verifyCredentials(request);
+                userCache.put(user);
 
-        UserDto user = userClient.verifyCredentials(request);
+                AuthTokensDto tokens = jwtService.issueTokens(user.getId(), email, user.getRole());
 
-        AuthTokensDto tokens = jwtService.issueTokens(user.getId(), email, user.getRole());
+                log.info("User {} logged in successfully", email);
+                auditLog.success(AuthEventType.LOGIN, user.getId(), null, email);
+                return tokens;
+            } catch (RuntimeException e) {
+                auditLog.failure(AuthEventType.LOGIN, e, null, null, email);
+                throw e;
+            }
+        });
+    }
 
-        log.info("User {} logged in successfully", email);
-        return tokens;
+    /**
+     * Обновление токенов через refresh-токен. Событие аудита пишет сама ротация,
+     * которой известны пользователь и сессия.
+     */
+    @Transactional(dontRollbackOn = TokenRejectedException.class)
+    public AuthTokensDto refresh(RefreshTokenRequestDto request) {
+        return authMetrics.record("auth.refresh", Tags.empty(),
+                () -> jwtService.refreshToken(request.getRefreshToken()));
     }
 
     /**
-     * Обновление токенов через refresh-токен.
+     * Отзыв всех сессий пользователя.
      */
     @Transactional
-    public AuthTokensDto refresh(RefreshTokenRequestDto request) {
-        String oldRefresh = request.getRefreshToken();
-        AuthTokensDto rotated = jwtService.refreshToken(oldRefresh);
+    public void logout(Long userId) {
+        authMetrics.run("auth.logout", Tags.empty(), () -> {
+            int revoked = jwtService.revokeTokens(userId);
+            userCache.evict(userId);
+            log.info("Tokens revoked for user {} ({} sessions)", userId, revoked);
+            auditLog.success(AuthEventType.LOGOUT, userId, null, null);
+        });
+    }
 
-        log.info("Tokens refreshed for refreshToken={}", oldRefresh.substring(0, 10) + "...");
-        return rotated;
+    /**
+     * Массовый отзыв токенов, например при деактивации аккаунтов.
+     */
+    @Transactional
+    public int revokeUsers(List<Long> userIds) {
+        int revoked = jwtService.revokeTokens(userIds);
+        userCache.evictAll(userIds);
+        log.info("Tokens revoked for {} users ({} sessions)", userIds.size(), revoked);
+        userIds.forEach(userId -> auditLog.success(AuthEventType.TOKENS_REVOKED, userId, null, null));
+        return revoked;
+    }
+
+    /**
+     * Действующие сессии (устройства) пользователя постранично.
+     */
+    public SessionPageDto listSessions(Long userId, int page, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_SESSIONS_PAGE_SIZE);
+        Page<TokenStore.SessionInfo> sessions = jwtService.findSessions(userId, PageRequest.of(Math.max(0, page), pageSize));
+        List<SessionDto> content = sessions.getContent().stream()
+                .map(session -> new SessionDto(session.sessionId(), session.createdAt(), session.lastRefreshedAt(),
+                        session.expiresAt()))
+                .toList();
+        return new SessionPageDto(content, sessions.getNumber(), sessions.getSize(), sessions.getTotalElements());
     }
 
     /**
-     * Отзыв всех токенов пользователя.
+     * Выход на одном устройстве: отзыв одной сессии пользователя.
+     *
+     * @return false, если у пользователя нет такой действующей сессии
      */
     @Transactional
-    public void logout(Long userId) {
-        jwtService.revokeTokens(userId);
-        log.info("Tokens revoked for user {}", userId);
+    public boolean revokeSession(Long userId, String sessionId) {
+        boolean revoked = jwtService.revokeSession(userId, sessionId);
+        log.info("Session {} of user {} {}", sessionId, userId, revoked ? "revoked" : "not found");
+        if (revoked) {
+            auditLog.success(AuthEventType.SESSION_REVOKED, userId, sessionId, null);
+        }
+        return revoked;
+    }
+
+    /**
+     * Пакетная интроспекция токенов для API-шлюзов.
+     * Общий срок кэширования ответа — минимальный из сроков отдельных токенов.
+     */
+    public IntrospectResponseDto introspect(IntrospectRequestDto request) {
+        List<TokenIntrospectionDto> results = jwtService.introspect(request.getTokens(), request.getTokenType());
+        long maxAge = results.stream()
+                .mapToLong(TokenIntrospectionDto::getMaxAgeSeconds)
+                .min()
+                .orElse(0);
+        return new IntrospectResponseDto(results, maxAge);
     }
-}
\ No newline at end of file
+}
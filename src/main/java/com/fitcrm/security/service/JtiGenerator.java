@@ -0,0 +1,53 @@
+package com.fitcrm.security.service;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Идентификаторы токенов (jti) без обращения к SecureRandom на каждый токен.
+ * Строка — UUID версии 4 (RFC 4122), поэтому колонки и индексы jti не меняются.
+ * Старшие биты — случайный префикс узла, младшие 62 — счетчик, перемешанный обратимой
+ * функцией со случайным при старте сдвигом: значения уникальны в пределах узла (2^62),
+ * но не идут подряд и не выдают число выпущенных токенов.
+ * <p>
+ * jti — идентификатор, а не секрет: перемешивание не криптостойкое, подлинность токена
+ * обеспечивает только подпись. Использовать jti как bearer-секрет или одноразовый код нельзя.
+ */
+@Component
+public class JtiGenerator {
+
+    private static final long VERSION_MASK = 0xFFFF_FFFF_FFFF_0FFFL;
+    private static final long VERSION_4 = 0x0000_0000_0000_4000L;
+    private static final long LOW_BITS = 0x3FFF_FFFF_FFFF_FFFFL;
+    private static final long VARIANT_RFC_4122 = 0x8000_0000_0000_0000L;
+    // нечетная константа золотого сечения, как у SplittableRandom: шаг обходит все 2^62 значений
+    private static final long GAMMA = 0x9E37_79B9_7F4A_7C15L;
+
+    private final long nodePrefix;
+    private final long seed;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public JtiGenerator() {
+        SecureRandom random = new SecureRandom();
+        this.nodePrefix = random.nextLong() & VERSION_MASK | VERSION_4;
+        this.seed = random.nextLong();
+    }
+
+    public String next() {
+        return new UUID(nodePrefix, mix62(seed + sequence.incrementAndGet() * GAMMA) | VARIANT_RFC_4122).toString();
+    }
+
+    /**
+     * Финализатор SplittableRandom.mix64, ограниченный 62 битами: каждый шаг (xorshift, умножение
+     * на нечетное по модулю 2^62) — биекция, поэтому разные значения счетчика не совпадают.
+     */
+    static long mix62(long z) {
+        z &= LOW_BITS;
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L & LOW_BITS;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL & LOW_BITS;
+        return z ^ (z >>> 31);
+    }
+}
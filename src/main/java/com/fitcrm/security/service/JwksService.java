@@ -0,0 +1,68 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.dto.JwkDto;
+import com.fitcrm.security.model.dto.JwksDto;
+import com.fitcrm.security.utils.TokenHashUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Публикация публичных ключей подписи в формате JWKS.
+ * Документ и его ETag пересобираются только при изменении кольца ключей.
+ */
+@Service
+@RequiredArgsConstructor
+public class JwksService {
+
+    private static final int P256_COORDINATE_LENGTH = 32;
+
+    private final JwtSigningEngine signingEngine;
+
+    private volatile CachedJwks cached;
+
+    public CachedJwks getJwks() {
+        long version = signingEngine.getRingVersion();
+        CachedJwks current = cached;
+        if (current == null || current.version() != version) {
+            current = build(version);
+            cached = current;
+        }
+        return current;
+    }
+
+    private CachedJwks build(long version) {
+        Map<String, ECPublicKey> publicKeys = signingEngine.getPublicKeys();
+        List<JwkDto> keys = new ArrayList<>();
+        for (Map.Entry<String, ECPublicKey> entry : publicKeys.entrySet()) {
+            ECPublicKey publicKey = entry.getValue();
+            keys.add(new JwkDto(
+                    "EC",
+                    "P-256",
+                    encodeCoordinate(publicKey.getW().getAffineX()),
+                    encodeCoordinate(publicKey.getW().getAffineY()),
+                    entry.getKey(),
+                    "sig",
+                    "ES256"));
+        }
+        String etag = TokenHashUtil.sha256Hex(String.join(",", publicKeys.keySet()));
+        return new CachedJwks(version, new JwksDto(keys), etag);
+    }
+
+    private static String encodeCoordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] unsigned = new byte[P256_COORDINATE_LENGTH];
+        int length = Math.min(bytes.length, P256_COORDINATE_LENGTH);
+        System.arraycopy(bytes, bytes.length - length, unsigned, P256_COORDINATE_LENGTH - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned);
+    }
+
+    public record CachedJwks(long version, JwksDto document, String etag) {
+    }
+}
@@ -1,40 +1,65 @@
 package com.fitcrm.security.service;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import com.fitcrm.security.clients.UserServiceClient;
+import com.fitcrm.security.exception.TokenRejectedException;
 import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.model.dto.TokenIntrospectionDto;
 import com.fitcrm.security.model.dto.UserDto;
-import com.fitcrm.security.model.entity.JwtToken;
+import com.fitcrm.security.model.enums.AuthEventType;
+import com.fitcrm.security.model.enums.FailureReason;
 import com.fitcrm.security.model.enums.TokenType;
-import com.fitcrm.security.repository.JwtTokenRepository;
+import com.fitcrm.security.repository.TokenStore;
+import com.fitcrm.security.repository.TokenStore.RotationResult;
+import com.fitcrm.security.repository.TokenStore.SessionInfo;
+import com.fitcrm.security.repository.TokenStore.StoredToken;
+import com.fitcrm.security.utils.JwtJsonWriter;
+import com.fitcrm.security.utils.TokenHashUtil;
+import com.fitcrm.security.utils.TransactionUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Tags;
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class JwtService {
 
-    private final JwtSigningKeyService keyService;
-    private final JwtTokenRepository tokenRepo;
-    private final UserServiceClient userClient;
+    // claims access-токена с email и UUID-идентификаторами укладываются без расширения буфера
+    private static final int CLAIMS_CAPACITY = 320;
 
-    private JWTVerifier verifier;
+    private final JwtSigningEngine signingEngine;
+    private final TokenStore tokenStore;
+    private final TokenRevocationIndex revocationIndex;
+    private final UserTokenEpochService epochService;
+    private final RevocationEventPublisher revocationEvents;
+    private final UserCacheService userCache;
+    private final AuthMetrics authMetrics;
+    private final AuthAuditLog auditLog;
+    private final JtiGenerator jtiGenerator;
+    private final Clock clock;
 
     @Value("${security.jwt.access-expiration-ms}")
     private long accessExpMs;
@@ -42,170 +67,471 @@ public class JwtService {
     @Value("${security.jwt.refresh-expiration-ms}")
     private long refreshExpMs;
 
+    @Value("${security.jwt.introspection.max-age-seconds}")
+    private long introspectionMaxAgeSeconds;
+
+    @Value("${security.jwt.refresh-rotation.retry-window-ms:10000}")
+    private long rotationRetryWindowMs;
+
+    @Value("${security.jwt.refresh-rotation.max-in-flight:100000}")
+    private long rotationMaxInFlight;
+
+    /**
+     * Ротации по хешу старого refresh-токена: пока ротация идет и еще retry-window после нее
+     * повторный запрос с тем же токеном получает ту же новую пару.
+     * Ошибка хранится в значении: исключительное завершение Caffeine пишет в журнал со стектрейсом.
+     */
+    private AsyncCache<String, RotationOutcome> recentRotations;
+
     @PostConstruct
-    public void initVerifier() {
-        Algorithm algorithm = Algorithm.HMAC512(keyService.getSigningKey().getBytes(StandardCharsets.UTF_8));
-        this.verifier = JWT.require(algorithm).build();
-        log.info("JWTVerifier initialized and cached");
+    public void init() {
+        this.recentRotations = Caffeine.newBuilder()
+                .maximumSize(rotationMaxInFlight)
+                .expireAfterWrite(Duration.ofMillis(rotationRetryWindowMs))
+                .buildAsync();
     }
 
     // ========================================================================
-    // 1. ВЫДАЧА ТОКЕНОВ (с сохранением в БД)
+    // 1. ВЫДАЧА ТОКЕНОВ (с сохранением в хранилище токенов)
     // ========================================================================
     @Transactional
     public AuthTokensDto issueTokens(Long userId, String email, String role) {
-        String access = generateAccessToken(userId, email, role);
-        String refresh = generateRefreshToken(userId);
-
-        saveOrUpdateToken(userId, TokenType.ACCESS, access);
-        saveOrUpdateToken(userId, TokenType.REFRESH, refresh);
+        return authMetrics.record("auth.tokens.issue", Tags.empty(), () -> {
+            // TOKEN_ROWS: каждый логин — новая сессия (устройство), остальные сессии пользователя не затрагиваются;
+            // USER_EPOCH: сессия у пользователя одна, новая пара отзывает все выданные раньше (см. saveTokens)
+            String sessionId = UUID.randomUUID().toString();
+            IssuedToken access = generateAccessToken(userId, sessionId, email, role);
+            IssuedToken refresh = generateRefreshToken(userId, sessionId);
 
-        LocalDateTime expiresAt = LocalDateTime.now().plus(accessExpMs, ChronoUnit.MILLIS);
+            saveTokens(userId, access, refresh);
 
-        return new AuthTokensDto(access, refresh, expiresAt);
+            return new AuthTokensDto(access.value(), refresh.value(), toLocal(access.expiresAt()));
+        });
     }
 
-    private String generateAccessToken(Long userId, String email, String role) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime exp = now.plus(accessExpMs, ChronoUnit.MILLIS);
-
-        return JWT.create()
-                .withJWTId(UUID.randomUUID().toString())
-                .withSubject(email)
-                .withIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
-                .withExpiresAt(Date.from(exp.atZone(ZoneId.systemDefault()).toInstant()))
-                .withClaim("user_id", userId)
-                .withClaim("role", role)
-                .withClaim("type", TokenType.ACCESS.name())
-                .sign(getAlgorithm());
+    // package-private: используется бенчмарками (src/jmh)
+    IssuedToken generateAccessToken(Long userId, String sessionId, String email, String role) {
+        Instant now = clock.instant();
+        Instant exp = now.plusMillis(accessExpMs);
+        String jti = jtiGenerator.next();
+
+        String claims = new JwtJsonWriter(CLAIMS_CAPACITY)
+                .string("jti", jti)
+                .string("sub", email)
+                .number("iat", now.getEpochSecond())
+                .number("iat_ms", now.toEpochMilli())
+                .number("exp", exp.getEpochSecond())
+                .number("user_id", userId)
+                .string("sid", sessionId)
+                .string("role", role)
+                .string("type", TokenType.ACCESS.name())
+                .build();
+        return new IssuedToken(signingEngine.sign(claims), sessionId, jti, now, exp);
     }
 
-    private String generateRefreshToken(Long userId) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime exp = now.plus(refreshExpMs, ChronoUnit.MILLIS);
-
-        return JWT.create()
-                .withJWTId(UUID.randomUUID().toString())
-                .withSubject(userId.toString())
-                .withIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
-                .withExpiresAt(Date.from(exp.atZone(ZoneId.systemDefault()).toInstant()))
-                .withClaim("type", TokenType.REFRESH.name())
-                .sign(getAlgorithm());
+    IssuedToken generateRefreshToken(Long userId, String sessionId) {
+        Instant now = clock.instant();
+        Instant exp = now.plusMillis(refreshExpMs);
+        String jti = jtiGenerator.next();
+
+        String claims = new JwtJsonWriter(CLAIMS_CAPACITY)
+                .string("jti", jti)
+                .string("sub", userId.toString())
+                .number("iat", now.getEpochSecond())
+                .number("iat_ms", now.toEpochMilli())
+                .number("exp", exp.getEpochSecond())
+                .string("sid", sessionId)
+                .string("type", TokenType.REFRESH.name())
+                .build();
+        return new IssuedToken(signingEngine.sign(claims), sessionId, jti, now, exp);
     }
 
-    private Algorithm getAlgorithm() {
-        return Algorithm.HMAC512(keyService.getSigningKey().getBytes(StandardCharsets.UTF_8));
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
     }
 
     // ========================================================================
     // 2. СОХРАНЕНИЕ/ОБНОВЛЕНИЕ В БД
     // ========================================================================
-    private void saveOrUpdateToken(Long userId, TokenType type, String tokenValue) {
-        JwtToken existing = tokenRepo.findByUserIdAndTokenType(userId, type).orElse(null);
-
-        if (existing != null) {
-            // UPDATE
-            existing.setTokenValue(tokenValue);
-            existing.setCreatedAt(LocalDateTime.now());
-            existing.setRevoked(false);
-            existing.setRevokedAt(null);
-            tokenRepo.save(existing);
-            log.debug("Updated {} token for user {}", type, userId);
-        } else {
-            // INSERT
-            JwtToken newToken = JwtToken.builder()
-                    .userId(userId)
-                    .tokenType(type)
-                    .tokenValue(tokenValue)
-                    .createdAt(LocalDateTime.now())
-                    .revoked(false)
-                    .build();
-            tokenRepo.save(newToken);
-            log.debug("Saved new {} token for user {}", type, userId);
+    private void saveTokens(Long userId, IssuedToken access, IssuedToken refresh) {
+        if (epochService.isEnabled()) {
+            // строк токенов нет, и повторное предъявление refresh-токена иначе не распознать:
+            // новая пара отзывает все выданные раньше нее, в том числе токены других устройств
+            Instant issuedAt = access.issuedAt().isBefore(refresh.issuedAt()) ? access.issuedAt() : refresh.issuedAt();
+            authMetrics.run("auth.tokens.persist", Tags.empty(), () -> epochService.supersede(userId, issuedAt));
+            return;
         }
+        authMetrics.run("auth.tokens.persist", Tags.empty(), () -> tokenStore.savePair(
+                stored(userId, TokenType.ACCESS, access), stored(userId, TokenType.REFRESH, refresh)));
+        log.debug("Saved ACCESS and REFRESH tokens for user {} session {}", userId, refresh.sessionId());
+        registerIssued(userId, access, refresh);
+    }
+
+    private void registerIssued(Long userId, IssuedToken access, IssuedToken refresh) {
+        String sessionId = refresh.sessionId();
+        revocationIndex.register(userId, sessionId, TokenType.ACCESS, access.jti(), access.expiresAt());
+        revocationIndex.register(userId, sessionId, TokenType.REFRESH, refresh.jti(), refresh.expiresAt());
+        revocationEvents.tokensIssued(userId, sessionId,
+                access.jti(), access.expiresAt(), refresh.jti(), refresh.expiresAt());
+    }
+
+    private static StoredToken stored(Long userId, TokenType type, IssuedToken token) {
+        return new StoredToken(userId, token.sessionId(), type, TokenHashUtil.sha256Hex(token.value()),
+                token.jti(), token.expiresAt());
     }
 
     // ========================================================================
     // 3. ВАЛИДАЦИЯ
     // ========================================================================
     public DecodedJWT verifyToken(String token, TokenType expectedType) {
+        Tags tags = Tags.of("type", expectedType.name());
         try {
-            DecodedJWT decoded = verifier.verify(token);
-            String type = decoded.getClaim("type").asString();
+            DecodedJWT decoded = authMetrics.record("auth.token.verify", tags.and("stage", "signature"),
+                    () -> verifySignatureAndType(token, expectedType));
+            authMetrics.run("auth.token.verify", tags.and("stage", "revocation"),
+                    () -> checkNotRevoked(token, decoded, expectedType));
+            return decoded;
+        } catch (JWTVerificationException e) {
+            log.debug("Token validation failed: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private DecodedJWT verifySignatureAndType(String token, TokenType expectedType) {
+        DecodedJWT decoded = signingEngine.verify(token);
+        String type = decoded.getClaim("type").asString();
 
-            if (!expectedType.name().equals(type)) {
-                throw new JWTVerificationException("Invalid token type");
+        if (!expectedType.name().equals(type)) {
+            throw new TokenRejectedException(FailureReason.INVALID_TOKEN_TYPE, "Invalid token type");
+        }
+        return decoded;
+    }
+
+    /**
+     * Проверяем по локальному индексу, в хранилище идем только для неизвестных узлу токенов.
+     */
+    private void checkNotRevoked(String token, DecodedJWT decoded, TokenType expectedType) {
+        if (epochService.isEnabled()) {
+            authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "epoch"));
+            Instant issuedAt = issuedAtOf(decoded);
+            if (issuedAt == null || epochService.isRevoked(userIdOf(decoded, expectedType), issuedAt)) {
+                throw new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Token revoked");
             }
+            return;
+        }
+        String jti = decoded.getId();
+        if (jti == null || revocationIndex.isRevoked(jti)) {
+            authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "index"));
+            throw new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Token not found or revoked");
+        }
+        if (revocationIndex.isActive(jti)) {
+            authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "index"));
+            return;
+        }
+        authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "store"));
+        long generation = revocationIndex.generation();
+        StoredToken stored = tokenStore.findActive(TokenHashUtil.sha256Hex(token), expectedType)
+                .orElseThrow(() -> new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Token not found or revoked"));
+        revocationIndex.registerVerified(stored.userId(), stored.sessionId(), expectedType, jti,
+                decoded.getExpiresAt().toInstant(), generation);
+    }
 
-            // Проверяем в БД
-            boolean exists = tokenRepo.findByTokenValueAndTokenTypeAndRevokedFalse(token, expectedType).isPresent();
-            if (!exists) {
-                throw new JWTVerificationException("Token not found or revoked");
+    /**
+     * Пакетная проверка токенов для API-шлюзов.
+     * Подписи проверяются по отдельности, отзыв — одним поиском по индексу
+     * и одним обращением к хранилищу для всех неизвестных узлу токенов.
+     */
+    public List<TokenIntrospectionDto> introspect(List<String> tokens, TokenType expectedType) {
+        return authMetrics.record("auth.token.introspect", Tags.of("type", expectedType.name()), () -> {
+            TokenIntrospectionDto[] results = new TokenIntrospectionDto[tokens.size()];
+            Map<String, List<Integer>> unknown = new HashMap<>();
+            DecodedJWT[] decoded = new DecodedJWT[tokens.size()];
+
+            for (int i = 0; i < tokens.size(); i++) {
+                try {
+                    decoded[i] = verifySignatureAndType(tokens.get(i), expectedType);
+                } catch (JWTVerificationException e) {
+                    results[i] = inactive(AuthMetrics.classify(e));
+                    continue;
+                }
+                if (isRevokedLocally(decoded[i], expectedType)) {
+                    results[i] = inactive(FailureReason.TOKEN_REVOKED);
+                } else if (epochService.isEnabled() || revocationIndex.isActive(decoded[i].getId())) {
+                    results[i] = active(decoded[i], expectedType);
+                } else {
+                    unknown.computeIfAbsent(TokenHashUtil.sha256Hex(tokens.get(i)), hash -> new ArrayList<>()).add(i);
+                }
             }
+            authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "index"));
+
+            if (!unknown.isEmpty()) {
+                authMetrics.count("auth.token.revocation.lookups", Tags.of("source", "store"));
+                long generation = revocationIndex.generation();
+                for (StoredToken stored : tokenStore.findAllActive(unknown.keySet(), expectedType)) {
+                    List<Integer> indexes = unknown.remove(stored.tokenHash());
+                    DecodedJWT token = decoded[indexes.get(0)];
+                    revocationIndex.registerVerified(stored.userId(), stored.sessionId(), expectedType, token.getId(),
+                            token.getExpiresAt().toInstant(), generation);
+                    indexes.forEach(i -> results[i] = active(token, expectedType));
+                }
+                unknown.values().forEach(indexes ->
+                        indexes.forEach(i -> results[i] = inactive(FailureReason.TOKEN_REVOKED)));
+            }
+            return List.of(results);
+        });
+    }
 
-            return decoded;
-        } catch (JWTVerificationException e) {
-            log.debug("Token validation failed: {}", e.getMessage());
-            throw e;
+    private boolean isRevokedLocally(DecodedJWT decoded, TokenType type) {
+        if (epochService.isEnabled()) {
+            Instant issuedAt = issuedAtOf(decoded);
+            return issuedAt == null || epochService.isRevoked(userIdOf(decoded, type), issuedAt);
         }
+        return decoded.getId() == null || revocationIndex.isRevoked(decoded.getId());
+    }
+
+    private TokenIntrospectionDto active(DecodedJWT decoded, TokenType type) {
+        Instant expiresAt = decoded.getExpiresAt().toInstant();
+        long secondsLeft = Math.max(0, clock.instant().until(expiresAt, ChronoUnit.SECONDS));
+        return TokenIntrospectionDto.builder()
+                .active(true)
+                .reason(FailureReason.NONE)
+                .userId(userIdOf(decoded, type))
+                .subject(decoded.getSubject())
+                .role(decoded.getClaim("role").asString())
+                .jti(decoded.getId())
+                .issuedAt(decoded.getIssuedAt() == null ? null : decoded.getIssuedAt().toInstant())
+                .expiresAt(expiresAt)
+                .maxAgeSeconds(Math.min(secondsLeft, introspectionMaxAgeSeconds))
+                .build();
+    }
+
+    // недействительный токен не станет действительным, кэшировать можно на весь допустимый срок
+    private TokenIntrospectionDto inactive(FailureReason reason) {
+        return TokenIntrospectionDto.builder()
+                .active(false)
+                .reason(reason)
+                .maxAgeSeconds(introspectionMaxAgeSeconds)
+                .build();
     }
 
     // ========================================================================
     // 4. ИЗВЛЕЧЕНИЕ
     // ========================================================================
     public Long extractUserId(String token, TokenType type) {
-        DecodedJWT decoded = verifyToken(token, type);
+        return userIdOf(verifyToken(token, type), type);
+    }
+
+    private Long userIdOf(DecodedJWT decoded, TokenType type) {
         return type == TokenType.REFRESH
                 ? Long.parseLong(decoded.getSubject())
                 : decoded.getClaim("user_id").asLong();
     }
 
+    /**
+     * Момент выдачи с точностью до миллисекунды; у токенов без iat_ms — начало секунды iat.
+     */
+    private static Instant issuedAtOf(DecodedJWT decoded) {
+        Long issuedAtMs = decoded.getClaim("iat_ms").asLong();
+        if (issuedAtMs != null) {
+            return Instant.ofEpochMilli(issuedAtMs);
+        }
+        return decoded.getIssuedAt() == null ? null : decoded.getIssuedAt().toInstant();
+    }
+
     // ========================================================================
-    // 5. РОТАЦИЯ (с перезаписью)
+    // 5. РОТАЦИЯ (compare-and-swap по хешу refresh-токена)
     // ========================================================================
-    @Transactional
+
+    /**
+     * Refresh-токен одноразовый. Одновременные и повторные (в пределах retry-window) запросы
+     * с одним токеном на этом узле получают одну и ту же новую пару. Повтор, дошедший до другого
+     * узла, отклоняется без последствий; предъявление токена, замененного раньше retry-window,
+     * или любого более старого токена сессии считается кражей и отзывает эту сессию.
+     */
+    @Transactional(dontRollbackOn = TokenRejectedException.class)
     public AuthTokensDto refreshToken(String oldRefreshToken) {
-        DecodedJWT decoded = verifyToken(oldRefreshToken, TokenType.REFRESH);
-        Long userId = Long.parseLong(decoded.getSubject());
+        String oldHash = TokenHashUtil.sha256Hex(oldRefreshToken);
+        CompletableFuture<RotationOutcome> rotation = new CompletableFuture<>();
+        CompletableFuture<RotationOutcome> inFlight = recentRotations.asMap().putIfAbsent(oldHash, rotation);
+        if (inFlight != null) {
+            RotationOutcome outcome = inFlight.join();
+            // выданную повтору пару уже заменили на этом узле: старый токен решает хранилище (REUSED)
+            if (outcome.tokens() == null || !recentRotations.asMap().containsKey(outcome.refreshHash())) {
+                authMetrics.count("auth.refresh.deduplicated", Tags.empty());
+                return outcome.tokensOrThrow();
+            }
+            return rotate(oldRefreshToken, oldHash);
+        }
+        try {
+            AuthTokensDto tokens = rotate(oldRefreshToken, oldHash);
+            // дубликаты получают пару только после коммита, при откате — повторяют ротацию сами
+            TransactionUtil.afterCompletion(() -> rotation.complete(new RotationOutcome(tokens,
+                            TokenHashUtil.sha256Hex(tokens.getRefreshToken()), null)),
+                    () -> failRotation(oldHash, rotation,
+                            new TokenRejectedException(FailureReason.INTERNAL, "Token rotation rolled back")));
+            return tokens;
+        } catch (RuntimeException e) {
+            failRotation(oldHash, rotation, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Неудачная ротация не остается в кэше: следующий запрос с тем же токеном проходит ее заново.
+     * Ожидающие дубликаты уже держат ссылку на future и получают ту же ошибку.
+     */
+    private void failRotation(String oldHash, CompletableFuture<RotationOutcome> rotation, RuntimeException failure) {
+        recentRotations.asMap().remove(oldHash, rotation);
+        rotation.complete(new RotationOutcome(null, null, failure));
+    }
+
+    private record RotationOutcome(AuthTokensDto tokens, String refreshHash, RuntimeException failure) {
 
-        UserDto user = userClient.getUserById(userId);
-        if (user == null || !user.isActive()) {
-            throw new RuntimeException("User not found or inactive");
+        AuthTokensDto tokensOrThrow() {
+            if (failure != null) {
+                throw failure;
+            }
+            return tokens;
         }
+    }
 
-        String email = user.getEmail();
-        String role = user.getRole();
+    /**
+     * В журнал аудита попадает каждая ротация и каждая отклоненная попытка;
+     * дубликаты, получившие уже выданную пару, событий не создают.
+     */
+    private AuthTokensDto rotate(String oldRefreshToken, String oldHash) {
+        Long userId = null;
+        String sessionId = null;
+        try {
+            // в режиме строк отзыв проверяет сама ротация: она проходит только для текущего токена
+            DecodedJWT decoded = epochService.isEnabled()
+                    ? verifyToken(oldRefreshToken, TokenType.REFRESH)
+                    : verifySignatureAndType(oldRefreshToken, TokenType.REFRESH);
+            userId = Long.parseLong(decoded.getSubject());
+            sessionId = sessionIdOf(decoded, oldHash);
+
+            UserDto user = userCache.getUser(userId);
+            if (user == null || !user.isActive()) {
+                throw new TokenRejectedException(FailureReason.USER_INACTIVE, "User not found or inactive");
+            }
 
-        String newAccess = generateAccessToken(userId, email, role);
-        String newRefresh = generateRefreshToken(userId);
+            String email = user.getEmail();
+            String role = user.getRole();
 
-        saveOrUpdateToken(userId, TokenType.ACCESS, newAccess);
-        saveOrUpdateToken(userId, TokenType.REFRESH, newRefresh);
+            IssuedToken newAccess = generateAccessToken(userId, sessionId, email, role);
+            IssuedToken newRefresh = generateRefreshToken(userId, sessionId);
 
-        DecodedJWT accessDecoded = verifier.verify(newAccess);
-        LocalDateTime expiresAt = accessDecoded.getExpiresAt()
-                .toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
+            if (epochService.isEnabled()) {
+                saveTokens(userId, newAccess, newRefresh);
+            } else {
+                rotateTokens(userId, oldHash, newAccess, newRefresh);
+            }
 
-        log.info("Tokens rotated for user {}", userId);
-        return new AuthTokensDto(newAccess, newRefresh, expiresAt);
+            log.info("Tokens rotated for user {} session {}", userId, sessionId);
+            auditLog.success(AuthEventType.REFRESH, userId, sessionId, null);
+            return new AuthTokensDto(newAccess.value(), newRefresh.value(), toLocal(newAccess.expiresAt()));
+        } catch (RuntimeException e) {
+            auditLog.failure(AuthEventType.REFRESH, e, userId, sessionId, null);
+            throw e;
+        }
+    }
+
+    /**
+     * sid из токена; у токенов, выданных до появления сессий, — из хранилища по хешу.
+     */
+    private String sessionIdOf(DecodedJWT decoded, String tokenHash) {
+        String sessionId = decoded.getClaim("sid").asString();
+        if (sessionId != null) {
+            return sessionId;
+        }
+        if (epochService.isEnabled()) {
+            return UUID.randomUUID().toString();
+        }
+        return tokenStore.findActive(tokenHash, TokenType.REFRESH)
+                .map(StoredToken::sessionId)
+                .orElseThrow(() -> new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Token not found or revoked"));
+    }
+
+    private void rotateTokens(Long userId, String oldHash, IssuedToken access, IssuedToken refresh) {
+        RotationResult result = authMetrics.record("auth.tokens.persist", Tags.empty(), () -> tokenStore.rotatePair(
+                oldHash,
+                stored(userId, TokenType.ACCESS, access),
+                stored(userId, TokenType.REFRESH, refresh),
+                Duration.ofMillis(rotationRetryWindowMs)));
+        authMetrics.count("auth.refresh.rotation", Tags.of("result", result.name()));
+
+        switch (result) {
+            case ROTATED -> registerIssued(userId, access, refresh);
+            case RETRY -> throw new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Refresh token already rotated");
+            case REUSED -> {
+                log.warn("Refresh token reuse detected for user {}, revoking session {}", userId, refresh.sessionId());
+                revokeSession(userId, refresh.sessionId());
+                auditLog.sessionRevoked(userId, refresh.sessionId(), FailureReason.TOKEN_REUSED);
+                throw new TokenRejectedException(FailureReason.TOKEN_REUSED, "Refresh token reused");
+            }
+            case REJECTED -> throw new TokenRejectedException(FailureReason.TOKEN_REVOKED, "Token not found or revoked");
+        }
     }
 
     // ========================================================================
     // 6. ОТЗЫВ
     // ========================================================================
     @Transactional
-    public void revokeTokens(Long userId) {
-        tokenRepo.findByUserIdAndTokenType(userId, TokenType.ACCESS)
-                .ifPresent(this::revokeToken);
-        tokenRepo.findByUserIdAndTokenType(userId, TokenType.REFRESH)
-                .ifPresent(this::revokeToken);
+    public int revokeTokens(Long userId) {
+        return revokeTokens(List.of(userId));
+    }
+
+    /**
+     * Отзывает все сессии нескольких пользователей одной операцией хранилища
+     * (в режиме USER_EPOCH — сдвигом эпохи пользователей).
+     *
+     * @return количество отозванных сессий (пользователей в режиме USER_EPOCH)
+     */
+    @Transactional
+    public int revokeTokens(Collection<Long> userIds) {
+        return authMetrics.record("auth.tokens.revoke", Tags.of("scope", "user"), () -> {
+            if (epochService.isEnabled()) {
+                return epochService.revokeAll(userIds);
+            }
+            int revoked = tokenStore.revokeAll(userIds);
+            userIds.forEach(revocationIndex::revokeAll);
+            revocationEvents.usersRevoked(userIds);
+            return revoked;
+        });
+    }
+
+    /**
+     * Отзывает одну сессию (устройство) пользователя.
+     * В режиме USER_EPOCH состояния сессий нет, поэтому отзываются все токены пользователя.
+     *
+     * @return false, если у пользователя нет такой действующей сессии
+     */
+    @Transactional
+    public boolean revokeSession(Long userId, String sessionId) {
+        return authMetrics.record("auth.tokens.revoke", Tags.of("scope", "session"), () -> {
+            if (epochService.isEnabled()) {
+                return epochService.revokeAll(List.of(userId)) > 0;
+            }
+            if (!tokenStore.revokeSession(userId, sessionId)) {
+                return false;
+            }
+            revocationIndex.revokeSession(sessionId);
+            revocationEvents.sessionRevoked(userId, sessionId);
+            return true;
+        });
+    }
+
+    /**
+     * Действующие сессии пользователя, последние обновленные первыми.
+     * В режиме USER_EPOCH сессии не хранятся, страница всегда пустая.
+     */
+    public Page<SessionInfo> findSessions(Long userId, Pageable pageable) {
+        if (epochService.isEnabled()) {
+            return Page.empty(pageable);
+        }
+        return authMetrics.record("auth.sessions.list", Tags.empty(), () -> tokenStore.findSessions(userId, pageable));
     }
 
-    private void revokeToken(JwtToken token) {
-        token.setRevoked(true);
-        token.setRevokedAt(LocalDateTime.now());
-        tokenRepo.save(token);
+    record IssuedToken(String value, String sessionId, String jti, Instant issuedAt, Instant expiresAt) {
     }
 }
\ No newline at end of file
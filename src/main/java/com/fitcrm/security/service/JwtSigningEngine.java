@@ -0,0 +1,306 @@
+package com.fitcrm.security.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.fitcrm.security.service.JwtSigningKeyService.SigningKeyMaterial;
+import com.fitcrm.security.utils.JwtJsonWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Подпись и проверка JWT по кольцу ключей.
+ * Для каждого kid один раз создаются Algorithm, JWTVerifier (оба потокобезопасны)
+ * и закодированный заголовок токена; проверка выбирает ключ по заголовку kid без блокировок.
+ * Новый ключ используется для подписи только спустя activation-delay после публикации,
+ * чтобы к этому моменту его успели подхватить все узлы.
+ * При lazy-init кольцо загружается после старта в фоне или при первой подписи/проверке,
+ * чтобы запрос в БД и расшифровка ключей не задерживали поднятие контекста.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JwtSigningEngine {
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtSigningKeyService keyService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+    private final AtomicLong lastReloadNanos = new AtomicLong();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile SigningKey currentKey;
+    private volatile long ringVersion;
+    private Timer signTimer;
+    private Timer verifyTimer;
+
+    @Value("${security.jwt.signing-keys.activation-delay-ms}")
+    private long activationDelayMs;
+
+    @Value("${security.jwt.signing-keys.min-reload-interval-ms}")
+    private long minReloadIntervalMs;
+
+    @Value("${security.jwt.signing-keys.lazy-init:false}")
+    private boolean lazyInit;
+
+    @PostConstruct
+    public void init() {
+        this.signTimer = Timer.builder("jwt.sign")
+                .description("Time spent signing JWTs")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("jwt.verify")
+                .description("Time spent verifying JWT signatures and claims")
+                .register(meterRegistry);
+        if (!lazyInit) {
+            ensureLoaded();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (lazyInit) {
+            Thread.ofVirtual().name("jwt-key-ring-warm-up").start(() -> {
+                try {
+                    ensureLoaded();
+                } catch (RuntimeException e) {
+                    log.warn("JWT key ring warm-up failed, will load on first use: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    private SigningKey ensureLoaded() {
+        SigningKey key = currentKey;
+        if (key != null) {
+            return key;
+        }
+        reloadLock.lock();
+        try {
+            if (currentKey == null) {
+                doReloadKeys();
+                log.info("JWT key ring initialized with {} key(s), signing kid={}", keys.size(), currentKey.kid());
+            }
+            return currentKey;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Подхватывает опубликованные другими узлами ключи и убирает устаревшие.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.signing-keys.refresh-interval-ms}",
+            initialDelayString = "${security.jwt.signing-keys.refresh-interval-ms}")
+    public void reloadKeys() {
+        // ReentrantLock, а не synchronized: под локом идет запрос в БД, который не должен
+        // закреплять виртуальный поток за carrier-потоком
+        reloadLock.lock();
+        try {
+            doReloadKeys();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void doReloadKeys() {
+        lastReloadNanos.set(System.nanoTime());
+        List<SigningKeyMaterial> active = keyService.loadActiveKeys();
+
+        Set<String> activeKids = active.stream().map(SigningKeyMaterial::kid).collect(Collectors.toSet());
+        if (!keys.keySet().equals(activeKids)) {
+            for (SigningKeyMaterial material : active) {
+                keys.computeIfAbsent(material.kid(), kid -> buildKey(material));
+            }
+            keys.keySet().retainAll(activeKids);
+            ringVersion++;
+        }
+
+        SigningKey selected = keys.get(selectSigningKid(active));
+        if (currentKey == null || !currentKey.kid().equals(selected.kid())) {
+            log.info("JWT signing key switched to kid={}", selected.kid());
+        }
+        this.currentKey = selected;
+    }
+
+    /**
+     * Номер версии кольца ключей, меняется при добавлении или удалении ключа.
+     */
+    public long getRingVersion() {
+        ensureLoaded();
+        return ringVersion;
+    }
+
+    /**
+     * Публичные ключи кольца (только асимметричные) по kid.
+     */
+    public Map<String, ECPublicKey> getPublicKeys() {
+        ensureLoaded();
+        Map<String, ECPublicKey> result = new TreeMap<>();
+        keys.values().forEach(key -> {
+            if (key.publicKey() != null) {
+                result.put(key.kid(), key.publicKey());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Подписывает готовый JSON claims текущим ключом. Заголовок не сериализуется заново:
+     * он закодирован один раз при загрузке ключа.
+     */
+    public String sign(String claimsJson) {
+        SigningKey key = ensureLoaded();
+        return signTimer.record(() -> {
+            byte[] header = key.encodedHeader();
+            byte[] payload = BASE64_URL.encode(claimsJson.getBytes(StandardCharsets.UTF_8));
+            byte[] signature = BASE64_URL.encode(key.algorithm().sign(header, payload));
+
+            byte[] token = new byte[header.length + payload.length + signature.length + 2];
+            System.arraycopy(header, 0, token, 0, header.length);
+            token[header.length] = '.';
+            System.arraycopy(payload, 0, token, header.length + 1, payload.length);
+            token[header.length + payload.length + 1] = '.';
+            System.arraycopy(signature, 0, token, header.length + payload.length + 2, signature.length);
+            return new String(token, StandardCharsets.US_ASCII);
+        });
+    }
+
+    public DecodedJWT verify(String token) {
+        ensureLoaded();
+        return verifyTimer.record(() -> {
+            DecodedJWT decoded = JWT.decode(token);
+            String kid = decoded.getKeyId();
+            return kid != null
+                    ? resolveKey(kid).verifier().verify(decoded)
+                    : verifyWithoutKid(decoded);
+        });
+    }
+
+    private SigningKey resolveKey(String kid) {
+        SigningKey key = keys.get(kid);
+        if (key == null && tryReserveReload()) {
+            // ключ мог появиться на другом узле раньше, чем сработала плановая перезагрузка
+            reloadKeys();
+            key = keys.get(kid);
+        }
+        if (key == null) {
+            throw new JWTVerificationException("Unknown signing key");
+        }
+        return key;
+    }
+
+    /**
+     * Токены, выданные до появления kid, проверяются перебором ключей кольца с тем же алгоритмом,
+     * что в заголовке токена: ключ другого алгоритма бросил бы AlgorithmMismatchException и прервал перебор.
+     * Такие токены истекают не позже чем через refresh-expiration-ms после обновления.
+     */
+    private DecodedJWT verifyWithoutKid(DecodedJWT decoded) {
+        for (SigningKey key : keys.values()) {
+            if (!key.algorithm().getName().equals(decoded.getAlgorithm())) {
+                continue;
+            }
+            try {
+                return key.verifier().verify(decoded);
+            } catch (SignatureVerificationException ignored) {
+                // пробуем следующий ключ
+            }
+        }
+        throw new SignatureVerificationException(currentKey.algorithm());
+    }
+
+    private boolean tryReserveReload() {
+        long now = System.nanoTime();
+        long last = lastReloadNanos.get();
+        return now - last >= TimeUnit.MILLISECONDS.toNanos(minReloadIntervalMs)
+                && lastReloadNanos.compareAndSet(last, now);
+    }
+
+    private String selectSigningKid(List<SigningKeyMaterial> active) {
+        LocalDateTime activeBefore = LocalDateTime.now().minus(activationDelayMs, ChronoUnit.MILLIS);
+        return active.stream()
+                .filter(key -> !key.createdAt().isAfter(activeBefore))
+                .findFirst()
+                .orElse(active.get(0))
+                .kid();
+    }
+
+    private static SigningKey buildKey(SigningKeyMaterial material) {
+        return switch (material.algorithm()) {
+            case HS512 -> {
+                Algorithm algorithm = Algorithm.HMAC512(material.secret().getBytes(StandardCharsets.UTF_8));
+                yield new SigningKey(material.kid(), algorithm, JWT.require(algorithm).build(),
+                        encodeHeader(algorithm, material.kid()), null);
+            }
+            case ES256 -> {
+                ECPublicKey publicKey = readEcPublicKey(material.publicKey());
+                ECPrivateKey privateKey = readEcPrivateKey(material.secret());
+                Algorithm algorithm = Algorithm.ECDSA256(publicKey, privateKey);
+                yield new SigningKey(material.kid(), algorithm, JWT.require(algorithm).build(),
+                        encodeHeader(algorithm, material.kid()), publicKey);
+            }
+        };
+    }
+
+    private static byte[] encodeHeader(Algorithm algorithm, String kid) {
+        String header = new JwtJsonWriter(64)
+                .string("alg", algorithm.getName())
+                .string("typ", "JWT")
+                .string("kid", kid)
+                .build();
+        return BASE64_URL.encode(header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ECPublicKey readEcPublicKey(String base64) {
+        try {
+            X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(base64));
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(spec);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid EC public key", e);
+        }
+    }
+
+    private static ECPrivateKey readEcPrivateKey(String base64) {
+        try {
+            PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64));
+            return (ECPrivateKey) KeyFactory.getInstance("EC").generatePrivate(spec);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid EC private key", e);
+        }
+    }
+
+    private record SigningKey(String kid, Algorithm algorithm, JWTVerifier verifier, byte[] encodedHeader,
+                              ECPublicKey publicKey) {
+    }
+}
@@ -1,17 +1,28 @@
 package com.fitcrm.security.service;
 
 import com.fitcrm.security.model.entity.JwtSigningKey;
+import com.fitcrm.security.model.enums.SigningAlgorithm;
 import com.fitcrm.security.repository.JwtSigningKeyRepository;
 import com.fitcrm.security.utils.JwtKeyUtil;
-import jakarta.annotation.PostConstruct;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -21,47 +32,161 @@ public class JwtSigningKeyService {
     private final JwtSigningKeyRepository keyRepo;
     private final JwtKeyUtil jwtKeyUtil;
 
-    @Getter
-    private String signingKey;
+    private final SecureRandom secureRandom = new SecureRandom();
 
-    @PostConstruct
-    public void init() {
-        this.signingKey = loadOrGenerateKey();
-        log.info("JWT signing key loaded ({} chars)", signingKey.length());
+    @Value("${security.jwt.refresh-expiration-ms}")
+    private long refreshExpMs;
+
+    @Value("${security.jwt.signing-keys.rotation-interval-ms}")
+    private long rotationIntervalMs;
+
+    @Value("${security.jwt.signing-keys.algorithm}")
+    private SigningAlgorithm algorithm;
+
+    /**
+     * Ключи, которыми могут быть подписаны еще не истекшие токены:
+     * все ключи моложе срока жизни refresh-токена и последний ключ, действовавший до этого.
+     * Порядок — от новых к старым. Если ключей нет, генерирует первый.
+     */
+    public List<SigningKeyMaterial> loadActiveKeys() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(refreshExpMs, ChronoUnit.MILLIS);
+        List<JwtSigningKey> keys = new ArrayList<>(keyRepo.findAllByCreatedAtAfterOrderByCreatedAtDesc(cutoff));
+        keyRepo.findFirstByCreatedAtLessThanEqualOrderByCreatedAtDesc(cutoff).ifPresent(keys::add);
+
+        List<SigningKeyMaterial> result = keys.stream()
+                .map(this::decrypt)
+                .flatMap(Optional::stream)
+                .toList();
+        if (result.isEmpty()) {
+            return List.of(generateAndSaveNewKey());
+        }
+        return result;
+    }
+
+    /**
+     * Публикует новый ключ, если последний старше интервала ротации
+     * или подписан не тем алгоритмом, что задан в конфигурации.
+     * Несколько узлов могут опубликовать ключ одновременно — это безопасно,
+     * все они попадут в кольцо ключей.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.signing-keys.rotation-check-interval-ms}",
+            initialDelayString = "${security.jwt.signing-keys.rotation-check-interval-ms}")
+    public void rotateIfDue() {
+        LocalDateTime threshold = LocalDateTime.now().minus(rotationIntervalMs, ChronoUnit.MILLIS);
+        boolean due = keyRepo.findLatestKey()
+                .map(key -> key.getCreatedAt().isBefore(threshold) || key.getAlgorithm() != algorithm)
+                .orElse(true);
+        if (due) {
+            SigningKeyMaterial key = generateAndSaveNewKey();
+            log.info("JWT signing key rotated, new kid={}", key.kid());
+        }
+    }
+
+    /**
+     * Проверка при старте: после смены алгоритма в конфигурации узел публикует ключ
+     * сразу, а не через rotation-check-interval. Ошибка не мешает старту — проверку повторит расписание.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rotateOnStartup() {
+        try {
+            rotateIfDue();
+        } catch (RuntimeException e) {
+            log.warn("JWT signing key check on startup failed, will retry on schedule: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Перешифровывает ключи старого формата AES/ECB в AES-GCM (v2) при старте узла,
+     * поэтому не зависит от того, как и где запускаются миграции схемы.
+     * Идемпотентно: берутся только строки без префикса v2, и строка заменяется, только если ее
+     * не перешифровал параллельно другой узел. Строки, которые не удалось расшифровать, остаются
+     * как есть — они и так пропускаются при загрузке кольца. Ошибка не мешает старту.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reencryptLegacyKeys() {
+        try {
+            int reencrypted = 0;
+            int skipped = 0;
+            for (JwtSigningKey key : keyRepo.findAllBySigningKeyNotLike(JwtKeyUtil.VERSION_PREFIX + "%")) {
+                String encrypted;
+                try {
+                    encrypted = jwtKeyUtil.encrypt(jwtKeyUtil.decrypt(key.getSigningKey(), key.getKid()), key.getKid());
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    log.warn("JWT key kid={} cannot be decrypted, left unchanged: {}", key.getKid(), e.getMessage());
+                    skipped++;
+                    continue;
+                }
+                reencrypted += keyRepo.replaceSigningKey(key.getId(), key.getSigningKey(), encrypted);
+            }
+            if (reencrypted > 0 || skipped > 0) {
+                log.info("JWT signing keys re-encrypted with AES-GCM: {}, skipped: {}", reencrypted, skipped);
+            }
+        } catch (RuntimeException e) {
+            log.warn("JWT signing key re-encryption failed, will retry on next startup: {}", e.getMessage());
+        }
     }
 
-    private String loadOrGenerateKey() {
-        return keyRepo.findLatestKey()
-                .map(key -> {
-                    try {
-                        return jwtKeyUtil.decrypt(key.getSigningKey());
-                    } catch (Exception e) {
-                        log.error("Failed to decrypt JWT key, generating new one", e);
-                        return generateAndSaveNewKey();
-                    }
-                })
-                .orElseGet(this::generateAndSaveNewKey);
+    private Optional<SigningKeyMaterial> decrypt(JwtSigningKey key) {
+        try {
+            String secret = jwtKeyUtil.decrypt(key.getSigningKey(), key.getKid());
+            return Optional.of(new SigningKeyMaterial(
+                    key.getKid(), key.getAlgorithm(), secret, key.getPublicKey(), key.getCreatedAt()));
+        } catch (Exception e) {
+            log.error("Failed to decrypt JWT key kid={}, skipping it", key.getKid(), e);
+            return Optional.empty();
+        }
     }
 
-    private String generateAndSaveNewKey() {
-        String plainKey = generateSecureKey();
+    private SigningKeyMaterial generateAndSaveNewKey() {
+        String kid = generateSecureKey(16);
+        LocalDateTime createdAt = LocalDateTime.now();
+        String plainKey;
+        String publicKey = null;
+        if (algorithm == SigningAlgorithm.ES256) {
+            KeyPair keyPair = generateEcKeyPair();
+            plainKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+            publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        } else {
+            plainKey = generateSecureKey(64);
+        }
         try {
-            String encryptedKey = jwtKeyUtil.encrypt(plainKey);
+            String encryptedKey = jwtKeyUtil.encrypt(plainKey, kid);
             JwtSigningKey entity = JwtSigningKey.builder()
+                    .kid(kid)
+                    .algorithm(algorithm)
                     .signingKey(encryptedKey)
-                    .createdAt(LocalDateTime.now())
+                    .publicKey(publicKey)
+                    .createdAt(createdAt)
                     .build();
             keyRepo.save(entity);
-            log.warn("New JWT signing key generated and encrypted in DB");
-            return plainKey;
+            log.warn("New {} JWT signing key generated and encrypted in DB, kid={}", algorithm, kid);
+            return new SigningKeyMaterial(kid, algorithm, plainKey, publicKey, createdAt);
         } catch (Exception e) {
             throw new RuntimeException("Failed to encrypt new JWT key", e);
         }
     }
 
-    private String generateSecureKey() {
-        byte[] randomBytes = new byte[64];
-        new SecureRandom().nextBytes(randomBytes);
+    private String generateSecureKey(int length) {
+        byte[] randomBytes = new byte[length];
+        secureRandom.nextBytes(randomBytes);
         return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
     }
+
+    private KeyPair generateEcKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"), secureRandom);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate EC key pair", e);
+        }
+    }
+
+    /**
+     * Расшифрованный ключ подписи.
+     * Для HS512 secret — HMAC-секрет, для ES256 — приватный ключ PKCS#8 и публичный X.509 в Base64.
+     */
+    public record SigningKeyMaterial(String kid, SigningAlgorithm algorithm, String secret,
+                                     String publicKey, LocalDateTime createdAt) {
+    }
 }
@@ -0,0 +1,147 @@
+package com.fitcrm.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ограничение частоты попыток логина по IP клиента и по email.
+ * GCRA: на ключ хранится одно AtomicLong (теоретическое время прихода следующего запроса),
+ * проверка — один CAS без блокировок. Ключи хранятся в Caffeine с ограничением размера,
+ * простаивающие ключи удаляются, когда их ведро снова полное.
+ * Время отсчитывается от создания лимитера, поэтому новое ведро (TAT = 0) сразу полное
+ * и создается без захвата текущего времени; счетчики решений регистрируются один раз на вид ключа.
+ */
+@Service
+@RequiredArgsConstructor
+public class LoginRateLimiter {
+
+    private static final Function<String, AtomicLong> NEW_BUCKET = key -> new AtomicLong();
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.login-rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.login-rate-limit.max-keys:100000}")
+    private long maxKeys;
+
+    @Value("${security.login-rate-limit.ip.limit:20}")
+    private int ipLimit;
+
+    @Value("${security.login-rate-limit.ip.burst:20}")
+    private int ipBurst;
+
+    @Value("${security.login-rate-limit.ip.period-ms:60000}")
+    private long ipPeriodMs;
+
+    @Value("${security.login-rate-limit.account.limit:5}")
+    private int accountLimit;
+
+    @Value("${security.login-rate-limit.account.burst:5}")
+    private int accountBurst;
+
+    @Value("${security.login-rate-limit.account.period-ms:60000}")
+    private long accountPeriodMs;
+
+    private Ticker ticker = Ticker.systemTicker();
+    private long origin;
+    private KeyedLimiter byIp;
+    private KeyedLimiter byAccount;
+
+    @PostConstruct
+    public void init() {
+        origin = ticker.read();
+        byIp = new KeyedLimiter("ip", ipLimit, ipBurst, ipPeriodMs);
+        byAccount = new KeyedLimiter("account", accountLimit, accountBurst, accountPeriodMs);
+    }
+
+    /**
+     * Расходует попытку для IP и email.
+     *
+     * @return 0, если попытка разрешена, иначе через сколько наносекунд можно повторить
+     */
+    public long tryAcquire(String clientIp, String email) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = ticker.read() - origin;
+        long retryAfter = byIp.tryAcquire(clientIp, now);
+        if (retryAfter == 0 && email != null) {
+            retryAfter = byAccount.tryAcquire(email.trim().toLowerCase(Locale.ROOT), now);
+        }
+        return retryAfter;
+    }
+
+    /**
+     * Число ключей в обоих лимитерах после удаления истекших и вытесненных.
+     */
+    long keys() {
+        byIp.buckets.cleanUp();
+        byAccount.buckets.cleanUp();
+        return byIp.buckets.estimatedSize() + byAccount.buckets.estimatedSize();
+    }
+
+    private final class KeyedLimiter {
+
+        private final Counter allowed;
+        private final Counter rejected;
+        private final long emissionIntervalNanos;
+        private final long burstWindowNanos;
+        private final Cache<String, AtomicLong> buckets;
+
+        KeyedLimiter(String scope, int limit, int burst, long periodMs) {
+            this.emissionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(periodMs) / limit;
+            this.burstWindowNanos = emissionIntervalNanos * burst;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(burstWindowNanos))
+                    .ticker(ticker)
+                    .recordStats()
+                    .build();
+
+            Tags tags = Tags.of("scope", scope);
+            this.allowed = meterRegistry.counter("auth.login.rate_limit.checks", tags.and("result", "allowed"));
+            this.rejected = meterRegistry.counter("auth.login.rate_limit.checks", tags.and("result", "rejected"));
+            CaffeineCacheMetrics.monitor(meterRegistry, buckets, "login-rate-limit-" + scope);
+            Gauge.builder("auth.login.rate_limit.limit", () -> limit).tags(tags)
+                    .description("Allowed login attempts per period").register(meterRegistry);
+            Gauge.builder("auth.login.rate_limit.burst", () -> burst).tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder("auth.login.rate_limit.period", () -> periodMs / 1000.0).tags(tags)
+                    .baseUnit("seconds").register(meterRegistry);
+        }
+
+        long tryAcquire(String key, long now) {
+            AtomicLong tat = buckets.get(key, NEW_BUCKET);
+            while (true) {
+                long current = tat.get();
+                long next = (current - now > 0 ? current : now) + emissionIntervalNanos;
+                long allowAt = next - burstWindowNanos;
+                if (allowAt - now > 0) {
+                    rejected.increment();
+                    return allowAt - now;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    allowed.increment();
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.enums.TokenType;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подписка на события отзыва других узлов (Postgres LISTEN).
+ * Держит одно соединение из пула на отдельном потоке. После каждого (пере)подключения
+ * догоняет изменения хранилища токенов с момента последнего живого опроса,
+ * поэтому события, отправленные во время разрыва, не теряются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevocationEventListener {
+
+    private final DataSource dataSource;
+    private final TokenRevocationIndex revocationIndex;
+    private final UserTokenEpochService epochService;
+    private final RevocationEventPublisher revocationEvents;
+    private final AuthMetrics authMetrics;
+
+    @Value("${security.jwt.revocation-events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.jwt.revocation-events.poll-timeout-ms:1000}")
+    private int pollTimeoutMs;
+
+    @Value("${security.jwt.revocation-events.reconnect-delay-ms:1000}")
+    private long reconnectDelayMs;
+
+    @Value("${security.jwt.revocation-events.catch-up-overlap-ms:5000}")
+    private long catchUpOverlapMs;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private volatile Instant lastAlive;
+    private Thread thread;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // индекс уже загружен из БД: догоняем все, что изменилось после загрузки
+        lastAlive = Instant.now();
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("revocation-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(pollTimeoutMs * 2L);
+        }
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + RevocationEventPublisher.CHANNEL);
+                }
+                catchUp(lastAlive.minusMillis(catchUpOverlapMs));
+                listening = true;
+                log.info("Listening for revocation events on channel {}", RevocationEventPublisher.CHANNEL);
+
+                while (running) {
+                    Instant polledAt = Instant.now();
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                    lastAlive = polledAt;
+                }
+            } catch (SQLException | RuntimeException e) {
+                listening = false;
+                if (!running) {
+                    return;
+                }
+                authMetrics.count("auth.revocation.events.reconnects", Tags.empty());
+                log.warn("Revocation listener disconnected, reconnecting in {} ms: {}", reconnectDelayMs, e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        listening = false;
+    }
+
+    /**
+     * Применяет изменения, которые могли быть пропущены без подписки.
+     */
+    void catchUp(Instant since) {
+        if (epochService.isEnabled()) {
+            epochService.refresh();
+            return;
+        }
+        revocationIndex.catchUp(since);
+    }
+
+    void handle(String payload) {
+        String[] fields = payload.split("\\|");
+        if (fields.length < 3 || fields[1].equals(revocationEvents.getNodeId())) {
+            return;
+        }
+        String kind = fields[0];
+        try {
+            switch (kind) {
+                case "I" -> {
+                    Long userId = Long.parseLong(fields[2]);
+                    revocationIndex.register(userId, fields[3], TokenType.ACCESS, fields[4],
+                            Instant.ofEpochSecond(Long.parseLong(fields[5])));
+                    revocationIndex.register(userId, fields[3], TokenType.REFRESH, fields[6],
+                            Instant.ofEpochSecond(Long.parseLong(fields[7])));
+                }
+                case "S" -> revocationIndex.revokeSession(fields[3]);
+                case "R" -> parseUserIds(fields[2]).forEach(revocationIndex::revokeAll);
+                case "V" -> epochService.applyRemote(parseUserIds(fields[3]), Long.parseLong(fields[2]));
+                case "E" -> epochService.applyRemote(parseUserIds(fields[3]),
+                        TimeUnit.SECONDS.toMillis(Long.parseLong(fields[2])));
+                default -> {
+                    log.warn("Unknown revocation event: {}", payload);
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Malformed revocation event {}: {}", payload, e.getMessage());
+            return;
+        }
+        authMetrics.count("auth.revocation.events.received", Tags.of("kind", kind));
+    }
+
+    private static List<Long> parseUserIds(String csv) {
+        return Arrays.stream(csv.split(",")).map(Long::parseLong).toList();
+    }
+}
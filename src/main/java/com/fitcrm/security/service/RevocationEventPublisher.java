@@ -0,0 +1,83 @@
+package com.fitcrm.security.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Публикует события отзыва для остальных узлов через Postgres NOTIFY.
+ * NOTIFY транзакционен: событие уходит только после коммита и в порядке коммитов.
+ * <p>
+ * Формат (поля через '|'):
+ * <pre>
+ * I|node|userId|sessionId|accessJti|accessExp|refreshJti|refreshExp  — выдана пара, прежние токены сессии заменены
+ * S|node|userId|sessionId                                          — отозвана одна сессия
+ * R|node|userId,userId,...                                         — отозваны все сессии пользователей
+ * V|node|validAfterMillis|userId,userId,...                       — сдвинута эпоха пользователей (USER_EPOCH)
+ * E|node|validAfterSeconds|userId,userId,...                      — то же от узлов прежней версии, только прием
+ * </pre>
+ */
+@Component
+@RequiredArgsConstructor
+public class RevocationEventPublisher {
+
+    public static final String CHANNEL = "token_revocations";
+
+    // лимит payload у NOTIFY — 8000 байт, списки пользователей режем на части
+    private static final int MAX_PAYLOAD_LENGTH = 7000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    @Value("${security.jwt.revocation-events.enabled:true}")
+    private boolean enabled;
+
+    public void tokensIssued(Long userId, String sessionId,
+                             String accessJti, Instant accessExp, String refreshJti, Instant refreshExp) {
+        notify(String.join("|", "I", nodeId, userId.toString(), sessionId,
+                accessJti, Long.toString(accessExp.getEpochSecond()),
+                refreshJti, Long.toString(refreshExp.getEpochSecond())));
+    }
+
+    public void sessionRevoked(Long userId, String sessionId) {
+        notify(String.join("|", "S", nodeId, userId.toString(), sessionId));
+    }
+
+    public void usersRevoked(Collection<Long> userIds) {
+        publishChunked("R|" + nodeId + "|", userIds);
+    }
+
+    public void epochAdvanced(Collection<Long> userIds, long validAfterEpochMilli) {
+        publishChunked("V|" + nodeId + "|" + validAfterEpochMilli + "|", userIds);
+    }
+
+    private void publishChunked(String prefix, Collection<Long> userIds) {
+        StringBuilder payload = new StringBuilder(prefix);
+        for (Long userId : userIds) {
+            if (payload.length() > MAX_PAYLOAD_LENGTH) {
+                notify(payload.toString());
+                payload.setLength(prefix.length());
+            } else if (payload.length() > prefix.length()) {
+                payload.append(',');
+            }
+            payload.append(userId);
+        }
+        if (payload.length() > prefix.length()) {
+            notify(payload.toString());
+        }
+    }
+
+    private void notify(String payload) {
+        if (enabled) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.repository.UserSessionRepository;
+import com.fitcrm.security.repository.UserTokenEpochRepository;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Фоновая очистка user_sessions и user_token_epochs.
+ * Удаляет сессии, не обновлявшиеся дольше срока жизни refresh-токена, и отозванные дольше grace-периода.
+ * Работает пачками по batch-size строк, каждая в своей короткой транзакции;
+ * строки, заблокированные другими транзакциями или узлами, пропускаются (SKIP LOCKED).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenPurgeService {
+
+    private final UserSessionRepository sessionRepo;
+    private final UserTokenEpochRepository epochRepo;
+    private final UserTokenEpochService epochService;
+    private final AuthMetrics authMetrics;
+
+    @Value("${security.jwt.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.jwt.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${security.jwt.purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${security.jwt.purge.revoked-grace-ms:86400000}")
+    private long revokedGraceMs;
+
+    @Value("${security.jwt.refresh-expiration-ms}")
+    private long refreshExpMs;
+
+    @Scheduled(initialDelayString = "${security.jwt.purge.interval-ms:600000}",
+            fixedDelayString = "${security.jwt.purge.interval-ms:600000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minus(refreshExpMs, ChronoUnit.MILLIS);
+        LocalDateTime revokedBefore = now.minus(revokedGraceMs, ChronoUnit.MILLIS);
+
+        int sessions = purgeTable("user_sessions",
+                () -> sessionRepo.purgeBatch(expiredBefore, revokedBefore, batchSize));
+        int epochs = purgeTable("user_token_epochs",
+                () -> epochRepo.purgeBatch(expiredBefore, batchSize));
+        epochService.evictBefore(expiredBefore);
+
+        if (sessions > 0 || epochs > 0) {
+            log.info("Purged {} sessions and {} user epochs", sessions, epochs);
+        }
+    }
+
+    private int purgeTable(String table, IntSupplier batch) {
+        Tags tags = Tags.of("table", table);
+        return authMetrics.record("auth.tokens.purge", tags, () -> {
+            int total = 0;
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int deleted = batch.getAsInt();
+                total += deleted;
+                authMetrics.count("auth.tokens.purged", tags, deleted);
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+            return total;
+        });
+    }
+}
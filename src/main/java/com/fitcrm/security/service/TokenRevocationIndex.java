@@ -0,0 +1,220 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore;
+import com.fitcrm.security.repository.TokenStore.SessionState;
+import com.fitcrm.security.repository.TokenStore.StoredToken;
+import com.fitcrm.security.utils.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальный индекс состояния токенов по jti.
+ * Активные токены проверяются без обращения к БД, отозванные и замененные
+ * отклоняются сразу. Текущие токены запоминаются по сессии, сессии — по пользователю,
+ * поэтому отзыв сессии или пользователя не перебирает весь индекс.
+ * Записи удаляются после истечения срока действия токена.
+ * Индекс работает, только если хранилище токенов помнит отозванные сессии
+ * ({@link TokenStore#supportsRevocationIndex()}); иначе все проверки идут в хранилище.
+ * Каждый отзыв увеличивает поколение индекса до изменения записей: токен, найденный в хранилище
+ * на пути запроса, запоминается, только если с начала поиска ничего не отзывалось.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenRevocationIndex {
+
+    private final TokenStore tokenStore;
+
+    private final Map<String, Instant> activeTokens = new ConcurrentHashMap<>();
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<TokenKey, String> currentJti = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        if (!tokenStore.supportsRevocationIndex()) {
+            log.info("Token revocation index disabled: token store does not keep revoked sessions");
+            return;
+        }
+        List<SessionState> sessions = tokenStore.findSessionStates(null);
+        sessions.forEach(this::apply);
+        evictExpired();
+        log.info("Token revocation index loaded: {} sessions, {} revoked tokens", sessions.size(), revokedTokens.size());
+    }
+
+    /**
+     * Применяет изменения хранилища после since, которые могли прийти без событий других узлов.
+     */
+    public void catchUp(Instant since) {
+        if (!tokenStore.supportsRevocationIndex()) {
+            return;
+        }
+        List<SessionState> changed = tokenStore.findSessionStates(since);
+        changed.forEach(this::apply);
+        log.debug("Revocation catch-up since {}: {} sessions", since, changed.size());
+    }
+
+    /**
+     * true — токен известен как выданный и не отозванный.
+     */
+    public boolean isActive(String jti) {
+        if (!tokenStore.supportsRevocationIndex()) {
+            return false;
+        }
+        Instant expiresAt = activeTokens.get(jti);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * true — токен известен как отозванный или замененный новым.
+     */
+    public boolean isRevoked(String jti) {
+        return tokenStore.supportsRevocationIndex() && revokedTokens.containsKey(jti);
+    }
+
+    /**
+     * Регистрирует новый токен сессии после коммита транзакции; предыдущий токен того же типа
+     * в этой сессии в тот же момент помечается отозванным. До коммита на этом узле действует
+     * прежнее состояние — как и в хранилище, которое еще не видит изменений.
+     */
+    public void register(Long userId, String sessionId, TokenType type, String jti, Instant expiresAt) {
+        if (!tokenStore.supportsRevocationIndex()) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            if (!revokedTokens.containsKey(jti)) {
+                put(userId, sessionId, type, jti, expiresAt);
+            }
+        });
+    }
+
+    /**
+     * Поколение отзывов; читается до поиска токена в хранилище и передается в {@link #registerVerified}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Запоминает токен, найденный действующим в хранилище на пути запроса.
+     * Прочитанное могло устареть, если между поиском и этим вызовом закоммитился отзыв:
+     * тогда поколение уже другое, и токен не запоминается — следующая проверка снова пойдет в хранилище.
+     *
+     * @param readGeneration значение {@link #generation()}, прочитанное до обращения к хранилищу
+     */
+    public void registerVerified(Long userId, String sessionId, TokenType type, String jti, Instant expiresAt,
+                                 long readGeneration) {
+        if (!tokenStore.supportsRevocationIndex()) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            if (generation.get() != readGeneration || revokedTokens.containsKey(jti)) {
+                return;
+            }
+            put(userId, sessionId, type, jti, expiresAt);
+            // отзыв между проверкой и записью мог снять записи сессии раньше, чем мы их добавили
+            if (generation.get() != readGeneration) {
+                activeTokens.remove(jti);
+                currentJti.remove(new TokenKey(sessionId, type), jti);
+            }
+        });
+    }
+
+    /**
+     * Помечает отозванными известные узлу токены сессии после коммита транзакции,
+     * вне транзакции — сразу. При откате индекс не меняется: отклонение по индексу
+     * не доходит до хранилища, и ранняя пометка заблокировала бы действующие токены.
+     */
+    public void revokeSession(String sessionId) {
+        TransactionUtil.afterCommit(() -> {
+            generation.incrementAndGet();
+            removeSession(sessionId);
+        });
+    }
+
+    /**
+     * Помечает отозванными известные узлу токены всех сессий пользователя, также после коммита.
+     */
+    public void revokeAll(Long userId) {
+        TransactionUtil.afterCommit(() -> {
+            generation.incrementAndGet();
+            Set<String> sessionIds = userSessions.remove(userId);
+            if (sessionIds != null) {
+                sessionIds.forEach(this::removeSession);
+            }
+        });
+    }
+
+    private void apply(SessionState session) {
+        StoredToken access = session.access();
+        StoredToken refresh = session.refresh();
+        if (session.revoked()) {
+            generation.incrementAndGet();
+            removeSession(refresh.sessionId());
+            markRevoked(access.jti(), access.expiresAt());
+            markRevoked(refresh.jti(), refresh.expiresAt());
+            return;
+        }
+        for (StoredToken token : List.of(access, refresh)) {
+            if (!revokedTokens.containsKey(token.jti())) {
+                put(token.userId(), token.sessionId(), token.type(), token.jti(), token.expiresAt());
+            }
+        }
+    }
+
+    private void removeSession(String sessionId) {
+        for (TokenType type : TokenType.values()) {
+            String jti = currentJti.remove(new TokenKey(sessionId, type));
+            if (jti != null) {
+                markRevoked(jti, null);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-index.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        activeTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        currentJti.values().removeIf(jti -> !activeTokens.containsKey(jti));
+        userSessions.values().forEach(sessionIds -> sessionIds.removeIf(sessionId ->
+                !currentJti.containsKey(new TokenKey(sessionId, TokenType.REFRESH))
+                        && !currentJti.containsKey(new TokenKey(sessionId, TokenType.ACCESS))));
+        userSessions.values().removeIf(Set::isEmpty);
+    }
+
+    private void put(Long userId, String sessionId, TokenType type, String jti, Instant expiresAt) {
+        activeTokens.put(jti, expiresAt);
+        userSessions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        String previous = currentJti.put(new TokenKey(sessionId, type), jti);
+        if (previous != null && !previous.equals(jti)) {
+            markRevoked(previous, null);
+        }
+    }
+
+    private void markRevoked(String jti, Instant knownExpiresAt) {
+        Instant expiresAt = activeTokens.remove(jti);
+        if (expiresAt == null) {
+            expiresAt = knownExpiresAt;
+        }
+        // без срока жизни токен либо уже истек, либо не был выдан этим узлом
+        if (expiresAt != null) {
+            revokedTokens.put(jti, expiresAt);
+        }
+    }
+
+    private record TokenKey(String sessionId, TokenType type) {
+    }
+}
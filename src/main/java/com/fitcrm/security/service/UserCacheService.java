@@ -0,0 +1,118 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.clients.UserServiceGateway;
+import com.fitcrm.security.model.dto.UserDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Короткоживущий кеш пользователей из user-service.
+ * Используется при обновлении токенов, где нужны только email, роль и признак активности.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserCacheService {
+
+    private final UserServiceGateway userGateway;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<Long, UserDto> users;
+
+    // загрузка идет вне Caffeine: блокирующий вызов user-service внутри compute держит блокировку
+    // корзины ConcurrentHashMap и закрепляет виртуальный поток за потоком-носителем
+    private final ConcurrentMap<Long, CompletableFuture<UserDto>> loading = new ConcurrentHashMap<>();
+
+    @Value("${user-service.cache.ttl-ms}")
+    private long ttlMs;
+
+    @Value("${user-service.cache.max-size}")
+    private long maxSize;
+
+    @PostConstruct
+    public void init() {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    /**
+     * Пользователь из кеша или из user-service. null, если user-service его не вернул.
+     * Одновременные промахи по одному пользователю ждут одну загрузку.
+     */
+    public UserDto getUser(Long userId) {
+        UserDto cached = users.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<UserDto> load = new CompletableFuture<>();
+        CompletableFuture<UserDto> inFlight = loading.putIfAbsent(userId, load);
+        if (inFlight != null) {
+            return awaitLoad(inFlight);
+        }
+        try {
+            UserDto user = userGateway.getUserById(userId);
+            if (user != null) {
+                users.put(userId, user);
+            }
+            // evict во время загрузки снял ее из loading: полученные данные могли устареть
+            if (!loading.remove(userId, load) && user != null) {
+                users.asMap().remove(userId, user);
+            }
+            load.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            loading.remove(userId, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static UserDto awaitLoad(CompletableFuture<UserDto> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Кладет в кеш актуальные данные, полученные другим вызовом (например, при логине).
+     */
+    public void put(UserDto user) {
+        users.put(user.getId(), user);
+    }
+
+    public void evict(Long userId) {
+        loading.remove(userId);
+        users.invalidate(userId);
+        userGateway.forget(userId);
+        log.debug("User {} evicted from cache", userId);
+    }
+
+    public void evictAll(Collection<Long> userIds) {
+        userIds.forEach(loading::remove);
+        users.invalidateAll(userIds);
+        userIds.forEach(userGateway::forget);
+    }
+}
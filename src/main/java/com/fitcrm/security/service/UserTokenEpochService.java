@@ -0,0 +1,138 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.entity.UserTokenEpoch;
+import com.fitcrm.security.model.enums.RevocationMode;
+import com.fitcrm.security.repository.UserTokenEpochRepository;
+import com.fitcrm.security.utils.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Эпохи отзыва пользователей для режима USER_EPOCH: токен отозван, если момент его выдачи
+ * (iat_ms, у старых токенов — iat) раньше valid_after пользователя. Сравнение с точностью
+ * до миллисекунды: токен, выданный в ту же секунду до отзыва, тоже отозван. Проверка выполняется по локальной карте,
+ * изменения других узлов подтягиваются инкрементально по updated_at.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserTokenEpochService {
+
+    private final UserTokenEpochRepository epochRepo;
+    private final RevocationEventPublisher revocationEvents;
+
+    // userId -> valid_after в миллисекундах эпохи (гранулярность iat_ms)
+    private final Map<Long, Long> validAfter = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastSeenUpdate = LocalDateTime.MIN;
+
+    @Value("${security.jwt.revocation-mode:TOKEN_ROWS}")
+    private RevocationMode revocationMode;
+
+    @Value("${security.jwt.refresh-expiration-ms}")
+    private long refreshExpMs;
+
+    @Value("${security.jwt.user-epochs.refresh-overlap-ms:5000}")
+    private long refreshOverlapMs;
+
+    @PostConstruct
+    public void load() {
+        if (!isEnabled()) {
+            return;
+        }
+        // эпохи старше срока жизни refresh-токена уже ничего не отзывают
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.minus(refreshExpMs, ChronoUnit.MILLIS);
+        lastSeenUpdate = now;
+        List<UserTokenEpoch> epochs = epochRepo.findAllByValidAfterAfter(horizon);
+        epochs.forEach(this::apply);
+        log.info("User token epochs loaded: {}; USER_EPOCH allows one session per user, "
+                + "each login or refresh signs the user out of other devices", epochs.size());
+    }
+
+    public boolean isEnabled() {
+        return revocationMode == RevocationMode.USER_EPOCH;
+    }
+
+    /**
+     * true — токен выдан раньше последнего отзыва токенов пользователя.
+     */
+    public boolean isRevoked(Long userId, Instant issuedAt) {
+        Long epoch = validAfter.get(userId);
+        return epoch != null && issuedAt.toEpochMilli() < epoch;
+    }
+
+    /**
+     * Делает недействительными токены, выданные раньше notBefore (с точностью до миллисекунды).
+     * Используется при выдаче новой пары, чтобы отозвать предыдущую; заодно отзываются
+     * токены всех других устройств пользователя.
+     */
+    public void supersede(Long userId, Instant notBefore) {
+        advance(List.of(userId), notBefore.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    /**
+     * Отзывает все уже выданные токены пользователей, включая выданные в текущую миллисекунду.
+     */
+    public int revokeAll(Collection<Long> userIds) {
+        Instant nextMilli = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusMillis(1);
+        return advance(userIds, nextMilli);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.user-epochs.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!isEnabled()) {
+            return;
+        }
+        // перекрытие покрывает транзакции, закоммиченные позже своего updated_at
+        LocalDateTime since = lastSeenUpdate.minus(refreshOverlapMs, ChronoUnit.MILLIS);
+        epochRepo.findAllByUpdatedAtAfter(since).forEach(this::apply);
+    }
+
+    /**
+     * Забывает эпохи, которые уже не могут отозвать ни один действующий токен.
+     */
+    public void evictBefore(LocalDateTime moment) {
+        long epochMilli = moment.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        validAfter.values().removeIf(epoch -> epoch < epochMilli);
+    }
+
+    private int advance(Collection<Long> userIds, Instant epoch) {
+        LocalDateTime epochTime = LocalDateTime.ofInstant(epoch, ZoneId.systemDefault());
+        int updated = epochRepo.advanceValidAfter(userIds, epochTime, LocalDateTime.now());
+        revocationEvents.epochAdvanced(userIds, epoch.toEpochMilli());
+        TransactionUtil.afterCommit(() -> userIds.forEach(userId -> merge(userId, epoch.toEpochMilli())));
+        return updated;
+    }
+
+    /**
+     * Применяет эпохи, сдвинутые другим узлом.
+     */
+    public void applyRemote(Collection<Long> userIds, long validAfterEpochMilli) {
+        userIds.forEach(userId -> merge(userId, validAfterEpochMilli));
+    }
+
+    private void apply(UserTokenEpoch epoch) {
+        merge(epoch.getUserId(), epoch.getValidAfter().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        if (epoch.getUpdatedAt().isAfter(lastSeenUpdate)) {
+            lastSeenUpdate = epoch.getUpdatedAt();
+        }
+    }
+
+    private void merge(Long userId, long epochMilli) {
+        validAfter.merge(userId, epochMilli, Math::max);
+    }
+}
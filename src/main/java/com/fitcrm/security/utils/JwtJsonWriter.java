@@ -0,0 +1,58 @@
+package com.fitcrm.security.utils;
+
+/**
+ * JSON заголовка и claims JWT без ObjectMapper и промежуточной Map:
+ * поля пишутся прямо в StringBuilder в порядке вызовов. Экземпляр одноразовый.
+ * Поле со значением null пропускается, как делает JWTCreator.
+ */
+public final class JwtJsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder json;
+
+    public JwtJsonWriter(int capacity) {
+        this.json = new StringBuilder(capacity).append('{');
+    }
+
+    public JwtJsonWriter string(String name, String value) {
+        if (value != null) {
+            name(name);
+            appendString(value);
+        }
+        return this;
+    }
+
+    public JwtJsonWriter number(String name, long value) {
+        name(name);
+        json.append(value);
+        return this;
+    }
+
+    public String build() {
+        return json.append('}').toString();
+    }
+
+    private void name(String name) {
+        if (json.length() > 1) {
+            json.append(',');
+        }
+        appendString(name);
+        json.append(':');
+    }
+
+    private void appendString(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -1,49 +1,114 @@
 package com.fitcrm.security.utils;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Шифрование ключей подписи в jwt_signing_keys.
+ * Формат v2: "v2:" + Base64(nonce(12) || шифртекст || тег GCM(16)), AES-256-GCM,
+ * kid ключа — дополнительные аутентифицированные данные (строку нельзя подставить под другой kid).
+ * Ключ шифрования выводится из encryption-secret один раз при старте;
+ * экземпляры Cipher переиспользуются через пул, каждый в один момент занят одним потоком.
+ * Значения без префикса — старый формат AES/ECB, поддерживается только расшифровка.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtKeyUtil {
 
-    private static final String ALGORITHM = "AES";
+    public static final String VERSION_PREFIX = "v2:";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES";
+    private static final String KDF_LABEL = "fitcrm/jwt-signing-keys/v2";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final Queue<Cipher> ciphers = new ConcurrentLinkedQueue<>();
+
     @Value("${security.jwt.encryption-secret}")
     private String secretKey;
 
-    public String decrypt(String encryptedData) throws NoSuchPaddingException, NoSuchAlgorithmException,
-            IllegalBlockSizeException, BadPaddingException, InvalidKeyException {
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, getKey());
-        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    private SecretKey key;
+    private SecretKey legacyKey;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        byte[] secret = secretKey.getBytes(StandardCharsets.UTF_8);
+        Mac hmac = Mac.getInstance("HmacSHA256");
+        hmac.init(new SecretKeySpec(secret, "HmacSHA256"));
+        this.key = new SecretKeySpec(hmac.doFinal(KDF_LABEL.getBytes(StandardCharsets.UTF_8)), "AES");
+
+        byte[] legacyBytes = new byte[16];
+        System.arraycopy(secret, 0, legacyBytes, 0, Math.min(secret.length, legacyBytes.length));
+        this.legacyKey = new SecretKeySpec(legacyBytes, "AES");
+    }
+
+    public String encrypt(String data, String kid) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        secureRandom.nextBytes(nonce);
+        byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+
+        Cipher cipher = borrow();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer out = ByteBuffer.allocate(NONCE_LENGTH + cipher.getOutputSize(plain.length));
+            out.put(nonce);
+            cipher.doFinal(ByteBuffer.wrap(plain), out);
+            return VERSION_PREFIX + Base64.getEncoder().encodeToString(out.array());
+        } finally {
+            ciphers.offer(cipher);
+        }
+    }
+
+    public String decrypt(String encryptedData, String kid) throws GeneralSecurityException {
+        if (!isCurrentFormat(encryptedData)) {
+            return decryptLegacy(encryptedData);
+        }
+        byte[] envelope = Base64.getDecoder().decode(encryptedData.substring(VERSION_PREFIX.length()));
+        Cipher cipher = borrow();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, envelope, 0, NONCE_LENGTH));
+            cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] plain = cipher.doFinal(envelope, NONCE_LENGTH, envelope.length - NONCE_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } finally {
+            ciphers.offer(cipher);
+        }
     }
 
-    public String encrypt(String data) throws InvalidKeyException, NoSuchPaddingException,
-            NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException {
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, getKey());
-        byte[] cipherBytes = cipher.doFinal(data.getBytes());
-        return Base64.getEncoder().encodeToString(cipherBytes);
+    public static boolean isCurrentFormat(String encryptedData) {
+        return encryptedData.startsWith(VERSION_PREFIX);
+    }
+
+    private String decryptLegacy(String encryptedData) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(LEGACY_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
     }
 
-    private SecretKeySpec getKey() {
-        byte[] key = secretKey.getBytes(StandardCharsets.UTF_8);
-        byte[] keyBytes = new byte[16];
-        System.arraycopy(key, 0, keyBytes, 0, Math.min(key.length, keyBytes.length));
-        return new SecretKeySpec(keyBytes, ALGORITHM);
+    // пул вместо ThreadLocal: на виртуальных потоках ThreadLocal не дает переиспользования
+    private Cipher borrow() throws GeneralSecurityException {
+        Cipher cipher = ciphers.poll();
+        return cipher != null ? cipher : Cipher.getInstance(TRANSFORMATION);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.fitcrm.security.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хеширование JWT для хранения и поиска в БД вместо полного текста токена.
+ */
+public final class TokenHashUtil {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private TokenHashUtil() {
+    }
+
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+CREATE TABLE auth_events (
+    id          BIGSERIAL PRIMARY KEY,
+    event_type  VARCHAR(32) NOT NULL,
+    success     BOOLEAN     NOT NULL,
+    reason      VARCHAR(32) NOT NULL,
+    user_id     BIGINT,
+    session_id  VARCHAR(36),
+    subject     VARCHAR(255),
+    occurred_at TIMESTAMP   NOT NULL
+);
+
+CREATE INDEX ix_auth_events_user_id ON auth_events (user_id, occurred_at);
+CREATE INDEX ix_auth_events_occurred_at ON auth_events (occurred_at);
+
+COMMENT ON TABLE auth_events IS 'Append-only audit trail of logins, refreshes and revocations, written asynchronously in batches';
+COMMENT ON COLUMN auth_events.reason IS 'FailureReason of a failed attempt or the cause of a system revocation, NONE otherwise';
+COMMENT ON COLUMN auth_events.subject IS 'Login identifier (email) for login attempts, when the user is not known yet';
+COMMENT ON COLUMN auth_events.occurred_at IS 'Moment of the event on the node, not of the batch insert';
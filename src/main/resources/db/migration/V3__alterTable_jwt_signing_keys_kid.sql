@@ -0,0 +1,10 @@
+ALTER TABLE jwt_signing_keys ADD COLUMN kid VARCHAR(64);
+
+UPDATE jwt_signing_keys SET kid = 'legacy-' || id;
+
+ALTER TABLE jwt_signing_keys ALTER COLUMN kid SET NOT NULL;
+
+CREATE UNIQUE INDEX ux_jwt_signing_keys_kid ON jwt_signing_keys (kid);
+CREATE INDEX ix_jwt_signing_keys_created_at ON jwt_signing_keys (created_at);
+
+COMMENT ON COLUMN jwt_signing_keys.kid IS 'Key ID written to the kid header of JWTs signed with this key';
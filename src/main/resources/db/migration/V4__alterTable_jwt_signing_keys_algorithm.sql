@@ -0,0 +1,6 @@
+ALTER TABLE jwt_signing_keys ADD COLUMN algorithm VARCHAR(10) NOT NULL DEFAULT 'HS512';
+ALTER TABLE jwt_signing_keys ADD COLUMN public_key TEXT;
+
+COMMENT ON COLUMN jwt_signing_keys.algorithm IS 'JWT signing algorithm: HS512 or ES256';
+COMMENT ON COLUMN jwt_signing_keys.signing_key IS 'Encrypted HMAC secret (HS512) or PKCS#8 private key (ES256)';
+COMMENT ON COLUMN jwt_signing_keys.public_key IS 'X.509 public key (ES256), published via JWKS';
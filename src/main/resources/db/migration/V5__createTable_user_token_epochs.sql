@@ -0,0 +1,11 @@
+CREATE TABLE user_token_epochs (
+                                   user_id BIGINT PRIMARY KEY,
+                                   valid_after TIMESTAMP NOT NULL,
+                                   updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX ix_user_token_epochs_updated_at ON user_token_epochs (updated_at);
+
+COMMENT ON TABLE user_token_epochs IS 'Per-user revocation epoch used by the USER_EPOCH revocation mode';
+COMMENT ON COLUMN user_token_epochs.valid_after IS 'Tokens issued (iat) before this moment are revoked';
+COMMENT ON COLUMN user_token_epochs.updated_at IS 'Last change, used for incremental reload on all nodes';
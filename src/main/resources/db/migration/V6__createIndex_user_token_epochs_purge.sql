@@ -0,0 +1 @@
+CREATE INDEX ix_user_token_epochs_valid_after ON user_token_epochs (valid_after);
@@ -0,0 +1,63 @@
+CREATE TABLE user_sessions (
+    id                    VARCHAR(36) PRIMARY KEY,
+    user_id               BIGINT      NOT NULL,
+    access_hash           VARCHAR(64) NOT NULL,
+    access_jti            VARCHAR(36) NOT NULL,
+    access_expires_at     TIMESTAMP   NOT NULL,
+    refresh_hash          VARCHAR(64) NOT NULL,
+    refresh_jti           VARCHAR(36) NOT NULL,
+    refresh_expires_at    TIMESTAMP   NOT NULL,
+    previous_refresh_hash VARCHAR(64),
+    rotated_at            TIMESTAMP,
+    created_at            TIMESTAMP   NOT NULL DEFAULT NOW(),
+    updated_at            TIMESTAMP   NOT NULL DEFAULT NOW(),
+    revoked               BOOLEAN     NOT NULL DEFAULT FALSE,
+    revoked_at            TIMESTAMP
+);
+
+CREATE UNIQUE INDEX ux_user_sessions_access_hash ON user_sessions (access_hash);
+CREATE UNIQUE INDEX ux_user_sessions_refresh_hash ON user_sessions (refresh_hash);
+CREATE INDEX ix_user_sessions_user_id ON user_sessions (user_id, updated_at);
+CREATE INDEX ix_user_sessions_updated_at ON user_sessions (updated_at);
+CREATE INDEX ix_user_sessions_revoked_at ON user_sessions (revoked_at) WHERE revoked;
+
+COMMENT ON TABLE user_sessions IS 'One row per logged-in device: the current access and refresh token of the session';
+COMMENT ON COLUMN user_sessions.id IS 'Session ID (sid claim of both tokens)';
+COMMENT ON COLUMN user_sessions.access_hash IS 'SHA-256 hex digest of the current access token';
+COMMENT ON COLUMN user_sessions.refresh_hash IS 'SHA-256 hex digest of the current refresh token';
+COMMENT ON COLUMN user_sessions.previous_refresh_hash IS 'Hash of the refresh token replaced by the last rotation, used for reuse detection';
+COMMENT ON COLUMN user_sessions.updated_at IS 'Last login or rotation of the session';
+
+-- Каждая пара ACCESS + REFRESH становится отдельной сессией. Строки jwt_tokens хранят сам JWT:
+-- от каждого пользователя берется последняя запись каждого типа, hash считается по строке токена,
+-- jti и exp читаются из payload. Промежуточных миграций jwt_tokens нет — таблица переносится
+-- в исходном виде и удаляется, чтобы не переписывать ее несколько раз ради одного переноса.
+WITH latest AS (
+    SELECT DISTINCT ON (user_id, token_type) user_id, token_type, token_value, created_at, revoked, revoked_at
+    FROM jwt_tokens
+    ORDER BY user_id, token_type, id DESC
+),
+     parsed AS (
+         SELECT l.*,
+                encode(sha256(convert_to(l.token_value, 'UTF8')), 'hex') AS token_hash,
+                convert_from(
+                        decode(rpad(translate(split_part(l.token_value, '.', 2), '-_', '+/'),
+                                    (length(split_part(l.token_value, '.', 2)) + 3) / 4 * 4, '='),
+                               'base64'),
+                        'UTF8')::JSONB AS claims
+         FROM latest l
+     )
+INSERT INTO user_sessions (id, user_id,
+                           access_hash, access_jti, access_expires_at,
+                           refresh_hash, refresh_jti, refresh_expires_at,
+                           created_at, updated_at, revoked, revoked_at)
+SELECT gen_random_uuid()::TEXT, a.user_id,
+       a.token_hash, a.claims ->> 'jti', to_timestamp((a.claims ->> 'exp')::BIGINT)::TIMESTAMP,
+       r.token_hash, r.claims ->> 'jti', to_timestamp((r.claims ->> 'exp')::BIGINT)::TIMESTAMP,
+       LEAST(a.created_at, r.created_at), GREATEST(a.created_at, r.created_at),
+       a.revoked OR r.revoked, COALESCE(r.revoked_at, a.revoked_at)
+FROM parsed a
+         JOIN parsed r ON r.user_id = a.user_id AND r.token_type = 'REFRESH'
+WHERE a.token_type = 'ACCESS';
+
+DROP TABLE jwt_tokens;
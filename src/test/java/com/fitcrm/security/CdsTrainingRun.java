@@ -0,0 +1,106 @@
+package com.fitcrm.security;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обучающий запуск для CDS-архива профиля fast-start (exec-плагин, ./mvnw -Pfast-start package).
+ * Поднимает встроенный Postgres со схемой из миграций и запускает распакованный jar с профилем fast-start
+ * до первого HTTP-ответа, как scripts/measure-startup.sh, после чего останавливает его:
+ * при выходе JVM записывает загруженные классы в application.jsa.
+ * spring.context.exit=onRefresh здесь не подходит: выход срабатывает уже на дочернем контексте Feign,
+ * и в архив не попадают классы сервисов и обработки запроса.
+ * Аргументы: каталог распакованного приложения, имя jar.
+ */
+public final class CdsTrainingRun {
+
+    private static final String TRAINING_SECRET = "cds-training-secret-not-used-outside-the-build";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofMinutes(2);
+
+    private CdsTrainingRun() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path workDir = Path.of(args[0]);
+        String jar = args[1];
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            Flyway.configure()
+                    .dataSource(postgres.getPostgresDatabase())
+                    .locations("classpath:db/migration")
+                    .load()
+                    .migrate();
+
+            int port = freePort();
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            Files.deleteIfExists(workDir.resolve("application.jsa"));
+            Process training = new ProcessBuilder(List.of(java,
+                    "-XX:ArchiveClassesAtExit=application.jsa",
+                    "-Dspring.aot.enabled=true",
+                    "-jar", jar,
+                    "--spring.profiles.active=fast-start",
+                    "--server.port=" + port,
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--security.jwt.encryption-secret=" + TRAINING_SECRET))
+                    .directory(workDir.toFile())
+                    .inheritIO()
+                    .start();
+            try {
+                awaitFirstResponse(training, port);
+            } finally {
+                // SIGTERM: обычное завершение JVM, архив пишется при выходе
+                training.destroy();
+                if (!training.waitFor(SHUTDOWN_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+                    training.destroyForcibly();
+                }
+            }
+            if (!Files.isRegularFile(workDir.resolve("application.jsa"))) {
+                throw new IllegalStateException("CDS training run did not write application.jsa");
+            }
+        }
+    }
+
+    /**
+     * Любой HTTP-ответ, включая 401, означает, что контекст поднят и запросы обслуживаются.
+     */
+    private static void awaitFirstResponse(Process training, int port) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/.well-known/jwks.json"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() - deadline < 0) {
+            if (!training.isAlive()) {
+                throw new IllegalStateException("CDS training run exited with code " + training.exitValue()
+                        + " before serving a request");
+            }
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("CDS training run did not serve a request within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
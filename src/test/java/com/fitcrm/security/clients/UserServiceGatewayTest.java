@@ -0,0 +1,105 @@
+package com.fitcrm.security.clients;
+
+import com.fitcrm.security.FitcrmSecurityServiceApplication;
+import com.fitcrm.security.model.dto.UserDto;
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(
+        classes = FitcrmSecurityServiceApplication.class,
+        properties = {
+                "user-service.url=http://localhost:${wiremock.server.port}",
+                // первый вызов Feign на холодной JVM в CI не укладывается в 500 мс из application-test.yml
+                "spring.cloud.openfeign.client.config.user-service.read-timeout=" + UserServiceGatewayTest.READ_TIMEOUT_MS
+        })
+@AutoConfigureWireMock(port = 0)
+@ActiveProfiles("test")
+class UserServiceGatewayTest {
+
+    static final int READ_TIMEOUT_MS = 3000;
+
+    private static final long[] USER_IDS = {1, 2, 3, 4};
+
+    @Autowired
+    private UserServiceGateway gateway;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @BeforeEach
+    void setUp() {
+        reset();
+        circuitBreakerRegistry.circuitBreaker("user-service").reset();
+        for (long userId : USER_IDS) {
+            gateway.forget(userId);
+        }
+    }
+
+    @Test
+    void servesLastKnownActiveUserWhenUserServiceFails() {
+        stubFor(get(urlEqualTo("/api/users/1"))
+                .willReturn(okJson(userJson(1, true))));
+        assertThat(gateway.getUserById(1L).getEmail()).isEqualTo("user1@fitcrm.test");
+
+        stubFor(get(urlEqualTo("/api/users/1"))
+                .willReturn(serverError()));
+        UserDto fallback = gateway.getUserById(1L);
+
+        assertThat(fallback.getId()).isEqualTo(1L);
+        assertThat(fallback.isActive()).isTrue();
+    }
+
+    @Test
+    void servesLastKnownUserOnReadTimeout() {
+        stubFor(get(urlEqualTo("/api/users/2"))
+                .willReturn(okJson(userJson(2, true))));
+        gateway.getUserById(2L);
+
+        stubFor(get(urlEqualTo("/api/users/2"))
+                .willReturn(okJson(userJson(2, true)).withFixedDelay(READ_TIMEOUT_MS + 2_000)));
+
+        assertThat(gateway.getUserById(2L).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void doesNotServeInactiveUserFromFallback() {
+        stubFor(get(urlEqualTo("/api/users/3"))
+                .willReturn(okJson(userJson(3, false))));
+        gateway.getUserById(3L);
+
+        stubFor(get(urlEqualTo("/api/users/3"))
+                .willReturn(serverError()));
+
+        assertThatThrownBy(() -> gateway.getUserById(3L))
+                .isInstanceOf(FeignException.class);
+    }
+
+    @Test
+    void doesNotMaskClientErrors() {
+        stubFor(get(urlEqualTo("/api/users/4"))
+                .willReturn(okJson(userJson(4, true))));
+        gateway.getUserById(4L);
+
+        stubFor(get(urlEqualTo("/api/users/4"))
+                .willReturn(notFound()));
+
+        assertThatThrownBy(() -> gateway.getUserById(4L))
+                .isInstanceOf(FeignException.NotFound.class);
+    }
+
+    private static String userJson(long id, boolean active) {
+        return """
+                {"id": %d, "email": "user%d@fitcrm.test", "role": "CLIENT", "active": %b}
+                """.formatted(id, id, active);
+    }
+}
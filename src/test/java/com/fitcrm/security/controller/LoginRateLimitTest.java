@@ -0,0 +1,96 @@
+package com.fitcrm.security.controller;
+
+import com.fitcrm.security.FitcrmSecurityServiceApplication;
+import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.service.AuthenticationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Лимит попыток логина на реальном Tomcat: 429 с Retry-After,
+ * IP клиента берется из X-Forwarded-For, когда запрос пришел от доверенного прокси (здесь localhost).
+ */
+@ActiveProfiles("test")
+@SpringBootTest(
+        classes = FitcrmSecurityServiceApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration,"
+                        + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+                "security.login-rate-limit.enabled=true",
+                "security.login-rate-limit.ip.limit=1",
+                "security.login-rate-limit.ip.burst=1",
+                "security.login-rate-limit.account.limit=1",
+                "security.login-rate-limit.account.burst=1"
+        })
+class LoginRateLimitTest {
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private AuthenticationService authService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void tokens() {
+        given(authService.login(any())).willReturn(new AuthTokensDto("access", "refresh", null));
+    }
+
+    @Test
+    void accountOverLimitGets429WithRetryAfter() {
+        assertThat(login("198.51.100.1", "Limited@FitCRM.test").statusCode()).isEqualTo(200);
+
+        HttpResponse<String> rejected = login("198.51.100.2", "limited@fitcrm.test");
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.headers().firstValue(HttpHeaders.RETRY_AFTER)).hasValue("60");
+        verify(authService, times(1)).login(any());
+    }
+
+    @Test
+    void clientsBehindTheSameProxyHaveSeparateIpBuckets() {
+        assertThat(login("203.0.113.10", "first@fitcrm.test").statusCode()).isEqualTo(200);
+        assertThat(login("203.0.113.11", "second@fitcrm.test").statusCode()).isEqualTo(200);
+
+        assertThat(login("203.0.113.10", "third@fitcrm.test").statusCode()).isEqualTo(429);
+    }
+
+    private HttpResponse<String> login(String clientIp, String email) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", clientIp)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + email + "\",\"password\":\"secret\"}"))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
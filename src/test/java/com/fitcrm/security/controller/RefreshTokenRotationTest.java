@@ -0,0 +1,218 @@
+package com.fitcrm.security.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitcrm.security.FitcrmSecurityServiceApplication;
+import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.model.dto.SessionPageDto;
+import com.fitcrm.security.model.dto.UserDto;
+import com.fitcrm.security.model.entity.UserSession;
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.UserSessionRepository;
+import com.fitcrm.security.service.JwtService;
+import com.fitcrm.security.service.UserCacheService;
+import com.fitcrm.security.utils.TokenHashUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Одновременные запросы /auth/refresh с одним токеном на Postgres:
+ * ротация происходит один раз, все дубликаты получают одну и ту же пару.
+ * Сессии разных устройств одного пользователя ротируются и отзываются независимо.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(
+        classes = FitcrmSecurityServiceApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration,"
+                        + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+                "spring.flyway.enabled=true",
+                "spring.jpa.hibernate.ddl-auto=validate",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+                "security.jwt.refresh-rotation.retry-window-ms=2000"
+        })
+class RefreshTokenRotationTest {
+
+    private static final int CONCURRENT_REFRESHES = 32;
+
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserSessionRepository sessionRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserCacheService userCache;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        POSTGRES.close();
+    }
+
+    @BeforeEach
+    void activeUser() {
+        given(userCache.getUser(anyLong()))
+                .willAnswer(invocation -> new UserDto(invocation.getArgument(0), "user@fitcrm.test", "CLIENT", true));
+    }
+
+    @Test
+    void concurrentRefreshesWithSameTokenRotateOnce() {
+        AuthTokensDto issued = jwtService.issueTokens(1L, "user@fitcrm.test", "CLIENT");
+
+        List<HttpResponse<String>> responses = refreshConcurrently(issued.getRefreshToken());
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.statusCode()).isEqualTo(200));
+        List<AuthTokensDto> pairs = responses.stream().map(this::tokens).toList();
+        AuthTokensDto rotated = pairs.get(0);
+        assertThat(pairs).allSatisfy(pair -> {
+            assertThat(pair.getAccessToken()).isEqualTo(rotated.getAccessToken());
+            assertThat(pair.getRefreshToken()).isEqualTo(rotated.getRefreshToken());
+        });
+        assertThat(rotated.getRefreshToken()).isNotEqualTo(issued.getRefreshToken());
+
+        UserSession session = sessionRepo.findByRefreshHashAndRevokedFalse(
+                TokenHashUtil.sha256Hex(rotated.getRefreshToken())).orElseThrow();
+        assertThat(session.getAccessHash()).isEqualTo(TokenHashUtil.sha256Hex(rotated.getAccessToken()));
+        assertThat(session.getPreviousRefreshHash()).isEqualTo(TokenHashUtil.sha256Hex(issued.getRefreshToken()));
+    }
+
+    @Test
+    void refreshTokenReusedAfterRetryWindowRevokesItsSession() throws InterruptedException {
+        AuthTokensDto issued = jwtService.issueTokens(2L, "user@fitcrm.test", "CLIENT");
+        AuthTokensDto otherDevice = jwtService.issueTokens(2L, "user@fitcrm.test", "CLIENT");
+        String sessionId = sessionOf(issued).getId();
+        assertThat(refresh(issued.getRefreshToken()).statusCode()).isEqualTo(200);
+
+        Thread.sleep(2500);
+
+        assertThat(refresh(issued.getRefreshToken()).statusCode()).isNotEqualTo(200);
+        assertThat(sessionRepo.findById(sessionId).orElseThrow().isRevoked()).isTrue();
+        assertThat(sessionOf(otherDevice).isRevoked()).isFalse();
+    }
+
+    @Test
+    void refreshTokenTwoGenerationsOldRevokesItsSession() {
+        AuthTokensDto issued = jwtService.issueTokens(4L, "user@fitcrm.test", "CLIENT");
+        String sessionId = sessionOf(issued).getId();
+        AuthTokensDto first = tokens(refresh(issued.getRefreshToken()));
+        AuthTokensDto second = tokens(refresh(first.getRefreshToken()));
+
+        assertThat(refresh(issued.getRefreshToken()).statusCode()).isNotEqualTo(200);
+        assertThat(sessionRepo.findById(sessionId).orElseThrow().isRevoked()).isTrue();
+        assertThat(refresh(second.getRefreshToken()).statusCode()).isNotEqualTo(200);
+    }
+
+    @Test
+    void loginOnAnotherDeviceKeepsExistingSessions() throws IOException {
+        AuthTokensDto phone = jwtService.issueTokens(3L, "user@fitcrm.test", "CLIENT");
+        AuthTokensDto tablet = jwtService.issueTokens(3L, "user@fitcrm.test", "CLIENT");
+
+        SessionPageDto sessions = objectMapper.readValue(
+                send(HttpRequest.newBuilder(uri("/auth/sessions?userId=3&size=10")).GET()).body(), SessionPageDto.class);
+        assertThat(sessions.getTotalElements()).isEqualTo(2);
+
+        HttpResponse<String> revoked = send(HttpRequest.newBuilder(
+                uri("/auth/sessions/" + sessionOf(phone).getId() + "?userId=3")).DELETE());
+        assertThat(revoked.statusCode()).isEqualTo(204);
+
+        assertThat(refresh(phone.getRefreshToken()).statusCode()).isNotEqualTo(200);
+        assertThat(refresh(tablet.getRefreshToken()).statusCode()).isEqualTo(200);
+    }
+
+    private UserSession sessionOf(AuthTokensDto tokens) {
+        return sessionRepo.findById(jwtService.verifyToken(tokens.getAccessToken(), TokenType.ACCESS)
+                .getClaim("sid").asString()).orElseThrow();
+    }
+
+    private List<HttpResponse<String>> refreshConcurrently(String refreshToken) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(CONCURRENT_REFRESHES);
+            for (int i = 0; i < CONCURRENT_REFRESHES; i++) {
+                responses.add(CompletableFuture.supplyAsync(() -> refresh(refreshToken), executor));
+            }
+            return responses.stream().map(CompletableFuture::join).toList();
+        }
+    }
+
+    private HttpResponse<String> refresh(String refreshToken) {
+        return send(HttpRequest.newBuilder(uri("/auth/refresh"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"refreshToken\":\"" + refreshToken + "\"}")));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + path);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) {
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AuthTokensDto tokens(HttpResponse<String> response) {
+        try {
+            return objectMapper.readValue(response.body(), AuthTokensDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
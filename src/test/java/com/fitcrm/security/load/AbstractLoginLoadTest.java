@@ -0,0 +1,162 @@
+package com.fitcrm.security.load;
+
+import com.fitcrm.security.FitcrmSecurityServiceApplication;
+import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.service.JwtService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Нагрузочный сценарий логина: user-service отвечает с задержкой,
+ * все запросы к /auth/login отправляются одновременно.
+ * Пул из PLATFORM_THREADS потоков обслуживает не больше PLATFORM_THREADS / latency логинов в секунду:
+ * каждый поток занят на все время ответа user-service. Режимы проверяются относительно этого предела.
+ * Запуск: ./mvnw test -Pload-test
+ */
+@Tag("load")
+@ActiveProfiles("test")
+@SpringBootTest(
+        classes = FitcrmSecurityServiceApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration,"
+                        + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+                "resilience4j.bulkhead.instances.user-service.max-concurrent-calls=100000",
+                "spring.cloud.openfeign.client.config.user-service.read-timeout=30000",
+                // задержку stub-а создает сам сценарий, медленным вызовом она не считается
+                "resilience4j.circuitbreaker.instances.user-service.slow-call-duration-threshold=60s"
+        })
+abstract class AbstractLoginLoadTest {
+
+    static final int CONCURRENT_LOGINS = Integer.getInteger("load.concurrency", 500);
+    // предел пула должен быть заметно ниже того, что узел успевает обработать по CPU,
+    // иначе оба режима упираются в процессор, а не в потоки
+    static final int PLATFORM_THREADS = 20;
+    static final Duration USER_SERVICE_LATENCY = Duration.ofMillis(Long.getLong("load.user-service-latency-ms", 2000));
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractLoginLoadTest.class);
+
+    private static final int WARM_UP_LOGINS = 50;
+
+    private static final byte[] USER_JSON =
+            "{\"id\":1,\"email\":\"load@fitcrm.test\",\"role\":\"CLIENT\",\"active\":true}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    // общий для обоих режимов, останавливается вместе с JVM
+    private static final HttpServer USER_SERVICE_STUB = startUserServiceStub();
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @DynamicPropertySource
+    static void userServiceUrl(DynamicPropertyRegistry registry) {
+        registry.add("user-service.url", () -> "http://127.0.0.1:" + USER_SERVICE_STUB.getAddress().getPort());
+    }
+
+    abstract String mode();
+
+    /**
+     * Проверка пропускной способности режима относительно предела пула платформенных потоков.
+     */
+    abstract void assertThroughput(double loginsPerSecond, double platformPoolCeiling);
+
+    @Test
+    void concurrentLogins() {
+        given(jwtService.issueTokens(anyLong(), any(), any()))
+                .willReturn(new AuthTokensDto("access", "refresh", LocalDateTime.now()));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"load@fitcrm.test\",\"password\":\"secret\"}"))
+                .build();
+
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(clientExecutor).build();
+            // прогрев: первые вызовы Feign, Jackson и Tomcat не должны попадать в замер
+            sendConcurrently(client, request, WARM_UP_LOGINS);
+
+            long started = System.nanoTime();
+            sendConcurrently(client, request, CONCURRENT_LOGINS);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+            double loginsPerSecond = CONCURRENT_LOGINS * 1000.0 / Math.max(1, elapsed.toMillis());
+            double platformPoolCeiling = PLATFORM_THREADS * 1000.0 / USER_SERVICE_LATENCY.toMillis();
+            log.info("{}: {} logins, user-service latency {} ms, total {} ms, {} logins/s (platform pool ceiling {})",
+                    mode(), CONCURRENT_LOGINS, USER_SERVICE_LATENCY.toMillis(), elapsed.toMillis(),
+                    Math.round(loginsPerSecond), Math.round(platformPoolCeiling));
+            assertThroughput(loginsPerSecond, platformPoolCeiling);
+        }
+    }
+
+    private static void sendConcurrently(HttpClient client, HttpRequest request, int count) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        assertThat(responses).allSatisfy(response -> assertThat(response.join().statusCode()).isEqualTo(200));
+    }
+
+    private static HttpServer startUserServiceStub() {
+        // по умолчанию stub держит 200 простаивающих соединений и закрывает остальные,
+        // а пул Feign переиспользует закрытые соединения и получает NoHttpResponseException
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(CONCURRENT_LOGINS));
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), CONCURRENT_LOGINS);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/internal/users/verify-credentials", exchange -> {
+                try {
+                    Thread.sleep(USER_SERVICE_LATENCY);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getRequestBody().readAllBytes();
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, USER_JSON.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(USER_JSON);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
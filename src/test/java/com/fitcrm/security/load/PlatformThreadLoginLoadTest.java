@@ -0,0 +1,25 @@
+package com.fitcrm.security.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {
+        "spring.threads.virtual.enabled=false",
+        "server.tomcat.threads.max=" + AbstractLoginLoadTest.PLATFORM_THREADS
+})
+class PlatformThreadLoginLoadTest extends AbstractLoginLoadTest {
+
+    @Override
+    String mode() {
+        return "platform threads (" + PLATFORM_THREADS + ")";
+    }
+
+    /**
+     * Сценарий действительно упирается в пул: быстрее предела пул работать не может.
+     */
+    @Override
+    void assertThroughput(double loginsPerSecond, double platformPoolCeiling) {
+        assertThat(loginsPerSecond).isLessThanOrEqualTo(platformPoolCeiling * 1.05);
+    }
+}
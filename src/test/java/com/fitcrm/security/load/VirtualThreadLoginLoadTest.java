@@ -0,0 +1,23 @@
+package com.fitcrm.security.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadLoginLoadTest extends AbstractLoginLoadTest {
+
+    @Override
+    String mode() {
+        return "virtual threads";
+    }
+
+    /**
+     * На виртуальных потоках ожидание user-service не занимает поток обработки,
+     * поэтому пропускная способность должна превышать предел пула платформенных потоков.
+     */
+    @Override
+    void assertThroughput(double loginsPerSecond, double platformPoolCeiling) {
+        assertThat(loginsPerSecond).isGreaterThan(platformPoolCeiling);
+    }
+}
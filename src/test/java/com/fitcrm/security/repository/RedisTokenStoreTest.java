@@ -0,0 +1,168 @@
+package com.fitcrm.security.repository;
+
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore.RotationResult;
+import com.fitcrm.security.repository.TokenStore.SessionInfo;
+import com.fitcrm.security.repository.TokenStore.StoredToken;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisTokenStoreTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisTokenStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.getRequiredConnectionFactory().getConnection().serverCommands().flushAll();
+        store = new RedisTokenStore(redisTemplate);
+        ReflectionTestUtils.setField(store, "keyPrefix", "test:");
+    }
+
+    @Test
+    void savedTokensAreFoundWithTtlOfTheirExpiry() {
+        Instant accessExp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(1L, "s1", TokenType.ACCESS, "a1", accessExp),
+                token(1L, "s1", TokenType.REFRESH, "r1", accessExp.plus(1, ChronoUnit.DAYS)));
+
+        StoredToken access = store.findActive("a1", TokenType.ACCESS).orElseThrow();
+        assertThat(access.userId()).isEqualTo(1L);
+        assertThat(access.sessionId()).isEqualTo("s1");
+        assertThat(access.jti()).isEqualTo("jti-a1");
+        assertThat(access.expiresAt()).isEqualTo(accessExp.truncatedTo(ChronoUnit.MILLIS));
+        assertThat(store.findActive("a1", TokenType.REFRESH)).isEmpty();
+
+        Long ttlMs = redisTemplate.getExpire("test:t:ACCESS:a1", TimeUnit.MILLISECONDS);
+        assertThat(ttlMs).isBetween(TimeUnit.MINUTES.toMillis(14), TimeUnit.MINUTES.toMillis(15));
+    }
+
+    @Test
+    void sessionsOfOneUserAreIndependent() {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(2L, "phone", TokenType.ACCESS, "a2-phone", exp),
+                token(2L, "phone", TokenType.REFRESH, "r2-phone", exp));
+        store.savePair(token(2L, "tablet", TokenType.ACCESS, "a2-tablet", exp),
+                token(2L, "tablet", TokenType.REFRESH, "r2-tablet", exp.plusSeconds(60)));
+
+        assertThat(store.findSessions(2L, PageRequest.of(0, 10)))
+                .extracting(SessionInfo::sessionId)
+                .containsExactly("tablet", "phone");
+
+        assertThat(store.revokeSession(2L, "phone")).isTrue();
+        assertThat(store.revokeSession(3L, "tablet")).isFalse();
+
+        assertThat(store.findActive("a2-phone", TokenType.ACCESS)).isEmpty();
+        assertThat(store.findActive("r2-phone", TokenType.REFRESH)).isEmpty();
+        assertThat(store.findActive("a2-tablet", TokenType.ACCESS)).isPresent();
+        assertThat(store.findSessions(2L, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    void rotationReplacesPairOfSessionOnlyOnce() {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(8L, "s8", TokenType.ACCESS, "a8", exp), token(8L, "s8", TokenType.REFRESH, "r8", exp));
+
+        RotationResult first = store.rotatePair("r8", token(8L, "s8", TokenType.ACCESS, "a8-new", exp),
+                token(8L, "s8", TokenType.REFRESH, "r8-new", exp), Duration.ofSeconds(10));
+        RotationResult retry = store.rotatePair("r8", token(8L, "s8", TokenType.ACCESS, "a8-other", exp),
+                token(8L, "s8", TokenType.REFRESH, "r8-other", exp), Duration.ofSeconds(10));
+        RotationResult reuse = store.rotatePair("r8", token(8L, "s8", TokenType.ACCESS, "a8-other", exp),
+                token(8L, "s8", TokenType.REFRESH, "r8-other", exp), Duration.ZERO);
+
+        assertThat(first).isEqualTo(RotationResult.ROTATED);
+        assertThat(retry).isEqualTo(RotationResult.RETRY);
+        assertThat(reuse).isEqualTo(RotationResult.REUSED);
+        assertThat(store.findActive("r8", TokenType.REFRESH)).isEmpty();
+        assertThat(store.findActive("a8", TokenType.ACCESS)).isEmpty();
+        assertThat(store.findActive("r8-new", TokenType.REFRESH)).isPresent();
+        assertThat(store.findActive("r8-other", TokenType.REFRESH)).isEmpty();
+    }
+
+    @Test
+    void tokenOlderThanPreviousIsReusedEvenWithinRetryWindow() {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(9L, "s9", TokenType.ACCESS, "a9", exp), token(9L, "s9", TokenType.REFRESH, "r9", exp));
+        store.rotatePair("r9", token(9L, "s9", TokenType.ACCESS, "a9-1", exp),
+                token(9L, "s9", TokenType.REFRESH, "r9-1", exp), Duration.ofSeconds(10));
+        store.rotatePair("r9-1", token(9L, "s9", TokenType.ACCESS, "a9-2", exp),
+                token(9L, "s9", TokenType.REFRESH, "r9-2", exp), Duration.ofSeconds(10));
+
+        RotationResult stale = store.rotatePair("r9", token(9L, "s9", TokenType.ACCESS, "a9-x", exp),
+                token(9L, "s9", TokenType.REFRESH, "r9-x", exp), Duration.ofSeconds(10));
+        store.revokeSession(9L, "s9");
+        RotationResult revoked = store.rotatePair("r9-2", token(9L, "s9", TokenType.ACCESS, "a9-x", exp),
+                token(9L, "s9", TokenType.REFRESH, "r9-x", exp), Duration.ofSeconds(10));
+
+        assertThat(stale).isEqualTo(RotationResult.REUSED);
+        assertThat(revoked).isEqualTo(RotationResult.REJECTED);
+    }
+
+    @Test
+    void findsActiveTokensOfBatchInOneCall() {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(3L, "s3", TokenType.ACCESS, "a3", exp), token(3L, "s3", TokenType.REFRESH, "r3", exp));
+        store.savePair(token(4L, "s4", TokenType.ACCESS, "a4", exp), token(4L, "s4", TokenType.REFRESH, "r4", exp));
+
+        List<StoredToken> found = store.findAllActive(List.of("a3", "unknown", "a4"), TokenType.ACCESS);
+
+        assertThat(found).extracting(StoredToken::tokenHash).containsExactly("a3", "a4");
+    }
+
+    @Test
+    void revokeAllRemovesSessionsOfAllUsers() {
+        Instant exp = Instant.now().plus(15, ChronoUnit.MINUTES);
+        store.savePair(token(5L, "s5", TokenType.ACCESS, "a5", exp), token(5L, "s5", TokenType.REFRESH, "r5", exp));
+        store.savePair(token(6L, "s6", TokenType.ACCESS, "a6", exp), token(6L, "s6", TokenType.REFRESH, "r6", exp));
+
+        int revoked = store.revokeAll(List.of(5L, 6L, 7L));
+
+        assertThat(revoked).isEqualTo(2);
+        assertThat(store.findAllActive(List.of("a5", "a6"), TokenType.ACCESS)).isEmpty();
+        assertThat(store.findAllActive(List.of("r5", "r6"), TokenType.REFRESH)).isEmpty();
+    }
+
+    private static StoredToken token(Long userId, String sessionId, TokenType type, String hash, Instant expiresAt) {
+        return new StoredToken(userId, sessionId, type, hash, "jti-" + hash, expiresAt);
+    }
+}
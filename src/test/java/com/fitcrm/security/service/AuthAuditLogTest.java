@@ -0,0 +1,134 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.exception.TokenRejectedException;
+import com.fitcrm.security.model.entity.AuthEvent;
+import com.fitcrm.security.model.enums.AuditOverflowPolicy;
+import com.fitcrm.security.model.enums.AuthEventType;
+import com.fitcrm.security.model.enums.FailureReason;
+import com.fitcrm.security.repository.AuthEventSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthAuditLogTest {
+
+    private final List<List<AuthEvent>> batches = new CopyOnWriteArrayList<>();
+    private final List<String> writerThreads = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failingWrites = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+    private AuthAuditLog auditLog;
+
+    @BeforeEach
+    void setUp() {
+        AuthEventSink sink = new AuthEventSink() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void write(List<AuthEvent> batch) {
+                if (failingWrites.getAndDecrement() > 0) {
+                    throw new IllegalStateException("sink unavailable");
+                }
+                batches.add(List.copyOf(batch));
+                writerThreads.add(Thread.currentThread().getName());
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        auditLog = new AuthAuditLog(sink, new AuthMetrics(meterRegistry), meterRegistry);
+        ReflectionTestUtils.setField(auditLog, "enabled", true);
+        ReflectionTestUtils.setField(auditLog, "queueCapacity", 5);
+        ReflectionTestUtils.setField(auditLog, "batchSize", 2);
+        ReflectionTestUtils.setField(auditLog, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(auditLog, "overflowPolicy", AuditOverflowPolicy.DROP);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        auditLog.stop();
+    }
+
+    @Test
+    void fullQueueDropsEventsAndFlusherWritesTheRestInBatches() {
+        for (long userId = 1; userId <= 8; userId++) {
+            auditLog.success(AuthEventType.LOGIN, userId, null, "user" + userId + "@fitcrm.test");
+        }
+        assertThat(auditLog.depth()).isEqualTo(5);
+        assertThat(meterRegistry.counter("auth.audit.events", "result", "dropped").count()).isEqualTo(3);
+
+        auditLog.start();
+        await(() -> batches.stream().mapToInt(List::size).sum() == 5);
+
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        assertThat(writerThreads).containsOnly("auth-audit-flusher");
+        assertThat(batches.stream().flatMap(List::stream).map(AuthEvent::getUserId))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(auditLog.depth()).isZero();
+    }
+
+    @Test
+    void failureIsRecordedWithClassifiedReasonAndFlushedOnStop() throws InterruptedException {
+        auditLog.start();
+
+        auditLog.failure(AuthEventType.REFRESH, new TokenRejectedException(FailureReason.TOKEN_REUSED, "reused"),
+                7L, "session-7", null);
+        auditLog.stop();
+
+        AuthEvent event = batches.getFirst().getFirst();
+        assertThat(event.isSuccess()).isFalse();
+        assertThat(event.getReason()).isEqualTo(FailureReason.TOKEN_REUSED);
+        assertThat(event.getSessionId()).isEqualTo("session-7");
+    }
+
+    @Test
+    void eventsAfterStopAreDroppedInsteadOfStayingQueued() throws InterruptedException {
+        auditLog.start();
+        auditLog.stop();
+
+        auditLog.success(AuthEventType.LOGIN, 8L, null, "user8@fitcrm.test");
+
+        assertThat(auditLog.depth()).isZero();
+        assertThat(meterRegistry.counter("auth.audit.events", "result", "dropped").count()).isEqualTo(1);
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    void failedBatchIsRetriedOnceThenCountedAsFailed() throws InterruptedException {
+        failingWrites.set(1);
+        auditLog.start();
+        auditLog.success(AuthEventType.LOGIN, 9L, null, "user9@fitcrm.test");
+        await(() -> batches.size() == 1);
+
+        failingWrites.set(2);
+        auditLog.success(AuthEventType.LOGIN, 10L, null, "user10@fitcrm.test");
+        auditLog.stop();
+
+        assertThat(batches.stream().flatMap(List::stream).map(AuthEvent::getUserId)).containsExactly(9L);
+        assertThat(meterRegistry.counter("auth.audit.events", "result", "written").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("auth.audit.events", "result", "failed").count()).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
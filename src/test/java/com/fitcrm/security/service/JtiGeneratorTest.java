@@ -0,0 +1,46 @@
+package com.fitcrm.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JtiGeneratorTest {
+
+    @Test
+    void jtisAreUniqueRfc4122UuidsWithoutSequentialLowBits() {
+        JtiGenerator generator = new JtiGenerator();
+        Set<String> jtis = new HashSet<>();
+        long previousLow = 0;
+        int consecutive = 0;
+
+        for (int i = 0; i < 100_000; i++) {
+            String jti = generator.next();
+            UUID uuid = UUID.fromString(jti);
+            assertThat(uuid.version()).isEqualTo(4);
+            assertThat(uuid.variant()).isEqualTo(2);
+            assertThat(jtis.add(jti)).isTrue();
+            if (uuid.getLeastSignificantBits() - previousLow == 1) {
+                consecutive++;
+            }
+            previousLow = uuid.getLeastSignificantBits();
+        }
+
+        assertThat(consecutive).isZero();
+    }
+
+    @Test
+    void mixIsABijectionOnLow62Bits() {
+        Set<Long> mixed = new HashSet<>();
+        for (long n = 0; n < 1 << 16; n++) {
+            long z = JtiGenerator.mix62(n);
+            assertThat(z >>> 62).isZero();
+            mixed.add(z);
+        }
+
+        assertThat(mixed).hasSize(1 << 16);
+    }
+}
@@ -0,0 +1,150 @@
+package com.fitcrm.security.service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.fitcrm.security.model.enums.SigningAlgorithm;
+import com.fitcrm.security.service.JwtSigningKeyService.SigningKeyMaterial;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtSigningEngineTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private JwtSigningKeyService keyService;
+    private JwtSigningEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        keyService = mock(JwtSigningKeyService.class);
+        engine = new JwtSigningEngine(keyService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "activationDelayMs", 180000L);
+        ReflectionTestUtils.setField(engine, "minReloadIntervalMs", 0L);
+    }
+
+    @Test
+    void tokensWithoutKidVerifyAgainstKeysOfTheirOwnAlgorithmInAMixedRing() throws Exception {
+        KeyPair current = ecKeyPair();
+        KeyPair previous = ecKeyPair();
+        when(keyService.loadActiveKeys()).thenReturn(List.of(
+                es256("es-current", current, now.minusHours(1)),
+                es256("es-previous", previous, now.minusDays(7)),
+                hs512("hs-legacy-1", "legacy-secret-1", now.minusDays(14)),
+                hs512("hs-legacy-2", "legacy-secret-2", now.minusDays(21))));
+        engine.init();
+
+        assertThat(engine.verify(withoutKid(hmac("legacy-secret-1"))).getSubject()).isEqualTo("1");
+        assertThat(engine.verify(withoutKid(hmac("legacy-secret-2"))).getSubject()).isEqualTo("1");
+        assertThat(engine.verify(withoutKid(ecdsa(previous))).getSubject()).isEqualTo("1");
+        assertThatThrownBy(() -> engine.verify(withoutKid(hmac("unknown-secret"))))
+                .isInstanceOf(SignatureVerificationException.class);
+    }
+
+    @Test
+    void newKeySignsOnlyAfterActivationDelayAndOldTokensVerifyUntilItLeavesTheRing() {
+        SigningKeyMaterial old = hs512("kid-old", "old-secret", now.minusDays(3));
+        when(keyService.loadActiveKeys()).thenReturn(List.of(old));
+        engine.init();
+        String oldToken = engine.sign(claims());
+        assertThat(JWT.decode(oldToken).getKeyId()).isEqualTo("kid-old");
+
+        when(keyService.loadActiveKeys()).thenReturn(List.of(hs512("kid-new", "new-secret", now), old));
+        engine.reloadKeys();
+        assertThat(JWT.decode(engine.sign(claims())).getKeyId()).isEqualTo("kid-old");
+
+        when(keyService.loadActiveKeys()).thenReturn(List.of(hs512("kid-new", "new-secret", now.minusHours(1)), old));
+        engine.reloadKeys();
+        String newToken = engine.sign(claims());
+        assertThat(JWT.decode(newToken).getKeyId()).isEqualTo("kid-new");
+        assertThat(engine.verify(oldToken).getSubject()).isEqualTo("1");
+        assertThat(engine.verify(newToken).getSubject()).isEqualTo("1");
+
+        when(keyService.loadActiveKeys()).thenReturn(List.of(hs512("kid-new", "new-secret", now.minusHours(1))));
+        engine.reloadKeys();
+        assertThatThrownBy(() -> engine.verify(oldToken))
+                .isInstanceOf(JWTVerificationException.class)
+                .hasMessage("Unknown signing key");
+        assertThat(engine.verify(newToken).getSubject()).isEqualTo("1");
+    }
+
+    @Test
+    void unknownKidReloadsTheRingAtMostOncePerMinReloadInterval() {
+        SigningKeyMaterial old = hs512("kid-old", "old-secret", now.minusDays(3));
+        when(keyService.loadActiveKeys()).thenReturn(List.of(old));
+        engine.init();
+
+        // ключ опубликован другим узлом, плановая перезагрузка еще не прошла
+        when(keyService.loadActiveKeys()).thenReturn(List.of(hs512("kid-peer", "peer-secret", now), old));
+        String peerToken = JWT.create().withKeyId("kid-peer").withSubject("1")
+                .withExpiresAt(inAnHour())
+                .sign(hmac("peer-secret"));
+        assertThat(engine.verify(peerToken).getSubject()).isEqualTo("1");
+
+        ReflectionTestUtils.setField(engine, "minReloadIntervalMs", 60000L);
+        String forged = JWT.create().withKeyId("kid-forged").withSubject("1").sign(hmac("forged-secret"));
+        assertThatThrownBy(() -> engine.verify(forged)).hasMessage("Unknown signing key");
+        assertThatThrownBy(() -> engine.verify(forged)).hasMessage("Unknown signing key");
+        verify(keyService, times(2)).loadActiveKeys();
+    }
+
+    private static String withoutKid(Algorithm algorithm) {
+        return JWT.create().withSubject("1").withExpiresAt(inAnHour()).sign(algorithm);
+    }
+
+    private static Date inAnHour() {
+        return Date.from(Instant.now().plus(1, ChronoUnit.HOURS));
+    }
+
+    private static String claims() {
+        return "{\"sub\":\"1\",\"exp\":" + Instant.now().plus(1, ChronoUnit.HOURS).getEpochSecond() + "}";
+    }
+
+    private static Algorithm hmac(String secret) {
+        return Algorithm.HMAC512(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Algorithm ecdsa(KeyPair keyPair) {
+        return Algorithm.ECDSA256((ECPublicKey) keyPair.getPublic(), (ECPrivateKey) keyPair.getPrivate());
+    }
+
+    private static SigningKeyMaterial hs512(String kid, String secret, LocalDateTime createdAt) {
+        return new SigningKeyMaterial(kid, SigningAlgorithm.HS512, secret, null, createdAt);
+    }
+
+    private static SigningKeyMaterial es256(String kid, KeyPair keyPair, LocalDateTime createdAt) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new SigningKeyMaterial(kid, SigningAlgorithm.ES256,
+                base64.encodeToString(keyPair.getPrivate().getEncoded()),
+                base64.encodeToString(keyPair.getPublic().getEncoded()), createdAt);
+    }
+
+    private static KeyPair ecKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+}
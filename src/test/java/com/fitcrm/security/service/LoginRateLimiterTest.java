@@ -0,0 +1,102 @@
+package com.fitcrm.security.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+
+    private static final long EMISSION_INTERVAL = TimeUnit.SECONDS.toNanos(12);
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new LoginRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "maxKeys", 100L);
+        ReflectionTestUtils.setField(limiter, "ipLimit", 100);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 100);
+        ReflectionTestUtils.setField(limiter, "ipPeriodMs", 60000L);
+        ReflectionTestUtils.setField(limiter, "accountLimit", 5);
+        ReflectionTestUtils.setField(limiter, "accountBurst", 5);
+        ReflectionTestUtils.setField(limiter, "accountPeriodMs", 60000L);
+        ReflectionTestUtils.setField(limiter, "ticker", (Ticker) nanos::get);
+        limiter.init();
+    }
+
+    @Test
+    void burstIsSpentThenRefilledOneAttemptPerEmissionInterval() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isZero();
+        }
+        assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isEqualTo(EMISSION_INTERVAL);
+
+        advance(TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test"))
+                .isEqualTo(EMISSION_INTERVAL - TimeUnit.SECONDS.toNanos(5));
+
+        advance(EMISSION_INTERVAL - TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isZero();
+        assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isEqualTo(EMISSION_INTERVAL);
+
+        assertThat(checks("account", "allowed")).isEqualTo(6);
+        assertThat(checks("account", "rejected")).isEqualTo(3);
+    }
+
+    @Test
+    void emailKeyIsTrimmedAndCaseFolded() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("203.0.113." + i, i % 2 == 0 ? "User@FitCRM.test" : " user@fitcrm.TEST "))
+                    .isZero();
+        }
+        assertThat(limiter.tryAcquire("203.0.113.9", "USER@fitcrm.test")).isPositive();
+        assertThat(limiter.tryAcquire("203.0.113.9", "other@fitcrm.test")).isZero();
+    }
+
+    @Test
+    void idleKeysExpireOnceTheirBucketIsFullAgain() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("203.0.113.1", "user@fitcrm.test");
+        }
+        assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isPositive();
+        assertThat(limiter.keys()).isEqualTo(2);
+
+        advance(5 * EMISSION_INTERVAL);
+        assertThat(limiter.keys()).isZero();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("203.0.113.1", "user@fitcrm.test")).isZero();
+        }
+    }
+
+    @Test
+    void keyCountIsBoundedByMaxKeys() {
+        ReflectionTestUtils.setField(limiter, "maxKeys", 3L);
+        limiter.init();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire("203.0.113." + i, null)).isZero();
+        }
+        assertThat(limiter.keys()).isEqualTo(3);
+    }
+
+    private void advance(long delta) {
+        nanos.addAndGet(delta);
+    }
+
+    private double checks(String scope, String result) {
+        return meterRegistry.get("auth.login.rate_limit.checks").tag("scope", scope).tag("result", result)
+                .counter().count();
+    }
+}
@@ -0,0 +1,143 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore;
+import com.fitcrm.security.repository.TokenStore.SessionState;
+import com.fitcrm.security.repository.TokenStore.StoredToken;
+import com.fitcrm.security.repository.UserTokenEpochRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RevocationEventListenerTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private final Instant expiresAt = Instant.now().plus(1, ChronoUnit.HOURS);
+
+    private TokenStore tokenStore;
+    private TokenRevocationIndex index;
+    private RevocationEventPublisher remoteNode;
+    private RevocationEventListener listener;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        tokenStore = mock(TokenStore.class);
+        when(tokenStore.supportsRevocationIndex()).thenReturn(true);
+        index = new TokenRevocationIndex(tokenStore);
+        remoteNode = publisher();
+        RevocationEventPublisher localNode = publisher();
+        UserTokenEpochService epochService = new UserTokenEpochService(mock(UserTokenEpochRepository.class), localNode);
+
+        listener = new RevocationEventListener(dataSource, index, epochService, localNode,
+                new AuthMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(listener, "enabled", true);
+        ReflectionTestUtils.setField(listener, "pollTimeoutMs", 100);
+        ReflectionTestUtils.setField(listener, "reconnectDelayMs", 100L);
+        ReflectionTestUtils.setField(listener, "catchUpOverlapMs", 5000L);
+        listener.start();
+        await(listener::isListening);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        listener.stop();
+    }
+
+    @Test
+    void tokensIssuedOnAnotherNodeReplaceLocallyKnownTokens() {
+        index.register(1L, "session-1", TokenType.ACCESS, "old-access-1", expiresAt);
+
+        remoteNode.tokensIssued(1L, "session-1", "new-access-1", expiresAt, "new-refresh-1", expiresAt);
+
+        await(() -> index.isRevoked("old-access-1"));
+        assertThat(index.isActive("new-access-1")).isTrue();
+        assertThat(index.isActive("new-refresh-1")).isTrue();
+    }
+
+    @Test
+    void usersRevokedOnAnotherNodeAreRevokedLocally() {
+        index.register(2L, "session-2", TokenType.ACCESS, "access-2", expiresAt);
+        index.register(3L, "session-3", TokenType.REFRESH, "refresh-3", expiresAt);
+
+        remoteNode.usersRevoked(List.of(2L, 3L));
+
+        await(() -> index.isRevoked("access-2") && index.isRevoked("refresh-3"));
+    }
+
+    @Test
+    void sessionRevokedOnAnotherNodeKeepsOtherSessionsOfUser() {
+        index.register(5L, "phone", TokenType.ACCESS, "phone-access", expiresAt);
+        index.register(5L, "tablet", TokenType.ACCESS, "tablet-access", expiresAt);
+
+        remoteNode.sessionRevoked(5L, "phone");
+
+        await(() -> index.isRevoked("phone-access"));
+        assertThat(index.isActive("tablet-access")).isTrue();
+    }
+
+    @Test
+    void catchesUpOnChangesMissedWhileDisconnected() {
+        index.register(4L, "session-4", TokenType.ACCESS, "access-4", expiresAt);
+        SessionState revoked = new SessionState(
+                new StoredToken(4L, "session-4", TokenType.ACCESS, "access-hash-4", "access-4", expiresAt),
+                new StoredToken(4L, "session-4", TokenType.REFRESH, "refresh-hash-4", "refresh-4", expiresAt),
+                true);
+        when(tokenStore.findSessionStates(any())).thenReturn(List.of(revoked));
+
+        new JdbcTemplate(dataSource).queryForList(
+                "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query LIKE 'LISTEN%'");
+
+        await(() -> index.isRevoked("access-4"));
+        await(listener::isListening);
+    }
+
+    private static RevocationEventPublisher publisher() {
+        RevocationEventPublisher publisher = new RevocationEventPublisher(new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(publisher, "enabled", true);
+        return publisher;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
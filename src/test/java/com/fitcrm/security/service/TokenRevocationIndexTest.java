@@ -0,0 +1,98 @@
+package com.fitcrm.security.service;
+
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Отзыв, закоммиченный между поиском токена в хранилище и его регистрацией в индексе,
+ * не должен вернуть токен в индекс действующим.
+ */
+class TokenRevocationIndexTest {
+
+    private static final int RACES = 20_000;
+
+    private final Instant expiresAt = Instant.now().plus(1, ChronoUnit.HOURS);
+
+    private TokenRevocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        TokenStore tokenStore = mock(TokenStore.class);
+        when(tokenStore.supportsRevocationIndex()).thenReturn(true);
+        index = new TokenRevocationIndex(tokenStore);
+    }
+
+    @Test
+    void staleStoreReadIsNotRegisteredAfterSessionOrUserRevocation() {
+        long generation = index.generation();
+        // хранилище ответило "действует", затем закоммитился отзыв сессии
+        index.revokeSession("session-1");
+        index.registerVerified(1L, "session-1", TokenType.ACCESS, "jti-1", expiresAt, generation);
+        assertThat(index.isActive("jti-1")).isFalse();
+
+        generation = index.generation();
+        index.revokeAll(2L);
+        index.registerVerified(2L, "session-2", TokenType.ACCESS, "jti-2", expiresAt, generation);
+        assertThat(index.isActive("jti-2")).isFalse();
+
+        generation = index.generation();
+        index.registerVerified(3L, "session-3", TokenType.ACCESS, "jti-3", expiresAt, generation);
+        assertThat(index.isActive("jti-3")).isTrue();
+    }
+
+    @Test
+    void concurrentRevocationNeverLeavesAStaleTokenActive() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2);
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (int i = 0; i < RACES; i++) {
+                String sessionId = "session-" + i;
+                String jti = "jti-" + i;
+                AtomicBoolean committed = new AtomicBoolean();
+
+                Future<?> verify = executor.submit(() -> {
+                    await(start);
+                    long generation = index.generation();
+                    // чтение хранилища: до коммита отзыва токен еще действует
+                    if (!committed.get()) {
+                        index.registerVerified(1L, sessionId, TokenType.ACCESS, jti, expiresAt, generation);
+                    }
+                });
+                Future<?> revoke = executor.submit(() -> {
+                    await(start);
+                    committed.set(true);
+                    if (sessionId.hashCode() % 2 == 0) {
+                        index.revokeSession(sessionId);
+                    } else {
+                        index.revokeAll(1L);
+                    }
+                });
+                verify.get();
+                revoke.get();
+
+                assertThat(index.isActive(jti)).as("token %s after revocation", jti).isFalse();
+            }
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
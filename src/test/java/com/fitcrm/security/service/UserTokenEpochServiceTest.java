@@ -0,0 +1,112 @@
+package com.fitcrm.security.service;
+
+import com.auth0.jwt.JWT;
+import com.fitcrm.security.exception.TokenRejectedException;
+import com.fitcrm.security.model.dto.AuthTokensDto;
+import com.fitcrm.security.model.enums.RevocationMode;
+import com.fitcrm.security.model.enums.SigningAlgorithm;
+import com.fitcrm.security.model.enums.TokenType;
+import com.fitcrm.security.repository.TokenStore;
+import com.fitcrm.security.repository.UserTokenEpochRepository;
+import com.fitcrm.security.service.JwtSigningKeyService.SigningKeyMaterial;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserTokenEpochServiceTest {
+
+    private final MutableClock clock = new MutableClock(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+    private UserTokenEpochService epochService;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        JwtSigningKeyService keyService = mock(JwtSigningKeyService.class);
+        when(keyService.loadActiveKeys()).thenReturn(List.of(new SigningKeyMaterial(
+                "kid-1", SigningAlgorithm.HS512, "epoch-test-secret", null, LocalDateTime.now().minusDays(1))));
+        JwtSigningEngine signingEngine = new JwtSigningEngine(keyService, new SimpleMeterRegistry());
+        signingEngine.init();
+
+        epochService = new UserTokenEpochService(mock(UserTokenEpochRepository.class), mock(RevocationEventPublisher.class));
+        ReflectionTestUtils.setField(epochService, "revocationMode", RevocationMode.USER_EPOCH);
+
+        AuthMetrics authMetrics = new AuthMetrics(new SimpleMeterRegistry());
+        jwtService = new JwtService(signingEngine, mock(TokenStore.class), mock(TokenRevocationIndex.class),
+                epochService, mock(RevocationEventPublisher.class), mock(UserCacheService.class), authMetrics,
+                mock(AuthAuditLog.class), new JtiGenerator(), clock);
+        ReflectionTestUtils.setField(jwtService, "accessExpMs", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpMs", 86_400_000L);
+        jwtService.init();
+    }
+
+    @Test
+    void newPairRevokesPairIssuedEarlierInTheSameSecond() {
+        clock.set(clock.instant().plusMillis(200));
+        AuthTokensDto first = jwtService.issueTokens(1L, "user@fitcrm.test", "CLIENT");
+        clock.set(clock.instant().plusMillis(400));
+        AuthTokensDto second = jwtService.issueTokens(1L, "user@fitcrm.test", "CLIENT");
+
+        assertThat(JWT.decode(first.getAccessToken()).getIssuedAt())
+                .isEqualTo(JWT.decode(second.getAccessToken()).getIssuedAt());
+        assertThatThrownBy(() -> jwtService.verifyToken(first.getAccessToken(), TokenType.ACCESS))
+                .isInstanceOf(TokenRejectedException.class);
+        assertThatThrownBy(() -> jwtService.verifyToken(first.getRefreshToken(), TokenType.REFRESH))
+                .isInstanceOf(TokenRejectedException.class);
+        assertThat(jwtService.verifyToken(second.getAccessToken(), TokenType.ACCESS).getSubject())
+                .isEqualTo("user@fitcrm.test");
+    }
+
+    @Test
+    void revokeAllRevokesTokensOfTheCurrentSecondButNotLaterOnes() {
+        Instant now = Instant.now();
+        epochService.revokeAll(List.of(2L));
+
+        assertThat(epochService.isRevoked(2L, now)).isTrue();
+        assertThat(epochService.isRevoked(2L, now.truncatedTo(ChronoUnit.SECONDS))).isTrue();
+        assertThat(epochService.isRevoked(2L, now.plusSeconds(1))).isFalse();
+        assertThat(epochService.isRevoked(3L, now)).isFalse();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.fitcrm.security.utils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtJsonWriterTest {
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    @Test
+    void claimsAreReadableByJavaJwtVerifier() {
+        Algorithm algorithm = Algorithm.HMAC512("test-secret".getBytes(StandardCharsets.UTF_8));
+        long now = Instant.now().getEpochSecond();
+        String header = new JwtJsonWriter(64)
+                .string("alg", algorithm.getName())
+                .string("typ", "JWT")
+                .string("kid", "kid-1")
+                .build();
+        String claims = new JwtJsonWriter(256)
+                .string("jti", "jti-1")
+                .string("sub", "we\"ird\\name\n@fitcrm.test")
+                .number("iat", now)
+                .number("exp", now + 60)
+                .number("user_id", 42L)
+                .string("role", null)
+                .build();
+
+        byte[] encodedHeader = BASE64_URL.encode(header.getBytes(StandardCharsets.UTF_8));
+        byte[] encodedPayload = BASE64_URL.encode(claims.getBytes(StandardCharsets.UTF_8));
+        String token = new String(encodedHeader, StandardCharsets.US_ASCII) + "."
+                + new String(encodedPayload, StandardCharsets.US_ASCII) + "."
+                + BASE64_URL.encodeToString(algorithm.sign(encodedHeader, encodedPayload));
+
+        DecodedJWT decoded = JWT.require(algorithm).build().verify(token);
+        assertThat(decoded.getKeyId()).isEqualTo("kid-1");
+        assertThat(decoded.getSubject()).isEqualTo("we\"ird\\name\n@fitcrm.test");
+        assertThat(decoded.getClaim("user_id").asLong()).isEqualTo(42L);
+        assertThat(decoded.getExpiresAt().toInstant().getEpochSecond()).isEqualTo(now + 60);
+        assertThat(decoded.getClaim("role").isNull()).isTrue();
+    }
+}
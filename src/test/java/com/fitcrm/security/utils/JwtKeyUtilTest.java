@@ -0,0 +1,66 @@
+package com.fitcrm.security.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyUtilTest {
+
+    private static final String SECRET = "test-secret-1234567890-very-long-for-aes-256";
+
+    private JwtKeyUtil jwtKeyUtil;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwtKeyUtil = new JwtKeyUtil();
+        ReflectionTestUtils.setField(jwtKeyUtil, "secretKey", SECRET);
+        jwtKeyUtil.init();
+    }
+
+    @Test
+    void v2FormatRoundTripsWithFreshNonce() throws Exception {
+        String first = jwtKeyUtil.encrypt("signing-secret", "kid-1");
+        String second = jwtKeyUtil.encrypt("signing-secret", "kid-1");
+
+        assertThat(first).startsWith(JwtKeyUtil.VERSION_PREFIX).isNotEqualTo(second);
+        assertThat(JwtKeyUtil.isCurrentFormat(first)).isTrue();
+        assertThat(jwtKeyUtil.decrypt(first, "kid-1")).isEqualTo("signing-secret");
+        assertThat(jwtKeyUtil.decrypt(second, "kid-1")).isEqualTo("signing-secret");
+    }
+
+    @Test
+    void legacyEcbValuesAreStillDecrypted() throws Exception {
+        Cipher ecb = Cipher.getInstance("AES");
+        ecb.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(
+                Arrays.copyOf(SECRET.getBytes(StandardCharsets.UTF_8), 16), "AES"));
+        String legacy = Base64.getEncoder().encodeToString(
+                ecb.doFinal("legacy-secret".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(JwtKeyUtil.isCurrentFormat(legacy)).isFalse();
+        assertThat(jwtKeyUtil.decrypt(legacy, "any-kid")).isEqualTo("legacy-secret");
+    }
+
+    @Test
+    void kidIsAuthenticatedAndCiphertextCannotBeAltered() throws Exception {
+        String encrypted = jwtKeyUtil.encrypt("signing-secret", "kid-1");
+
+        assertThatThrownBy(() -> jwtKeyUtil.decrypt(encrypted, "kid-2"))
+                .isInstanceOf(AEADBadTagException.class);
+
+        byte[] envelope = Base64.getDecoder().decode(encrypted.substring(JwtKeyUtil.VERSION_PREFIX.length()));
+        envelope[envelope.length - 1] ^= 1;
+        String tampered = JwtKeyUtil.VERSION_PREFIX + Base64.getEncoder().encodeToString(envelope);
+        assertThatThrownBy(() -> jwtKeyUtil.decrypt(tampered, "kid-1"))
+                .isInstanceOf(AEADBadTagException.class);
+    }
+}